@@ -0,0 +1,83 @@
+package pt.up.fe.comp.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
+import pt.up.fe.comp2024.analysis.FusedAnalysis;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FusedAnalysisBenchmark {
+
+    /**
+     * Not a precise benchmark, compares the passes with a traversal each and with a single traversal on a large class.
+     */
+    @Test
+    public void largeClass() {
+        var code = new StringBuilder("import io;\nclass Large {\n    int field;\n");
+        for (int i = 0; i < 2_000; i++) {
+            code.append("    public int method").append(i).append("(int a, int[] b) {\n")
+                    .append("        int c;\n")
+                    .append("        boolean d;\n")
+                    .append("        c = a + b[0] * 2 - this.method0(a, b) / 3;\n")
+                    .append("        d = c < a;\n")
+                    .append("        while (c < 10) { c = c + 1; }\n")
+                    .append("        if (d) { io.println(c); } else { c = b.length; }\n")
+                    .append("        return c;\n")
+                    .append("    }\n");
+        }
+        code.append("}\n");
+
+        var root = new JmmParserImpl().parse(code.toString(), Collections.emptyMap()).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+
+        Function<List<AnalysisPass>, Integer> separate = passes -> {
+            var reports = new ArrayList<Report>();
+            for (var pass : passes) {
+                reports.addAll(pass.analyze(root, table));
+            }
+            return reports.size();
+        };
+        Function<List<AnalysisPass>, Integer> fused = passes -> {
+            var analysis = new FusedAnalysis(passes);
+            analysis.analyze(root, table);
+
+            int reports = 0;
+            for (int i = 0; i < passes.size(); i++) {
+                assertNull(analysis.getFailure(i));
+                reports += analysis.getReports(i).size();
+            }
+            return reports;
+        };
+
+        int runs = 20;
+        long separateTime = Long.MAX_VALUE;
+        long fusedTime = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            var passes = FusedAnalysisTest.PASSES.stream().map(Supplier::get).toList();
+            long start = System.nanoTime();
+            int separateReports = separate.apply(passes);
+            separateTime = Math.min(separateTime, System.nanoTime() - start);
+
+            passes = FusedAnalysisTest.PASSES.stream().map(Supplier::get).toList();
+            start = System.nanoTime();
+            int fusedReports = fused.apply(passes);
+            fusedTime = Math.min(fusedTime, System.nanoTime() - start);
+
+            assertEquals(0, separateReports);
+            assertEquals(0, fusedReports);
+        }
+
+        System.out.printf("%d analysis passes: a traversal each %.1f ms, single traversal %.1f ms (best of %d)%n",
+                FusedAnalysisTest.PASSES.size(), separateTime / 1e6, fusedTime / 1e6, runs);
+    }
+}
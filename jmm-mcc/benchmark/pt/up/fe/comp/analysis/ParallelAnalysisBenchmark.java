@@ -0,0 +1,56 @@
+package pt.up.fe.comp.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.FusedAnalysis;
+import pt.up.fe.comp2024.analysis.ParallelAnalysis;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelAnalysisBenchmark {
+
+    /**
+     * Not a precise benchmark, compares a single traversal with the methods split between the threads of the pool.
+     */
+    @Test
+    public void largeClass() {
+        var root = new JmmParserImpl().parse(ParallelAnalysisTest.largeClass(2_000), Collections.emptyMap())
+                .getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+        // without the failing pass
+        var passes = ParallelAnalysisTest.PASSES.subList(0, ParallelAnalysisTest.PASSES.size() - 1);
+
+        int runs = 20;
+        long fusedTime = Long.MAX_VALUE;
+        long parallelTime = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            var fused = new FusedAnalysis(passes.stream().map(Supplier::get).toList());
+            fused.analyze(root, table);
+            fusedTime = Math.min(fusedTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            var parallel = new ParallelAnalysis(passes);
+            parallel.analyze(root, table);
+            parallelTime = Math.min(parallelTime, System.nanoTime() - start);
+
+            var fusedReports = new ArrayList<Report>();
+            var parallelReports = new ArrayList<Report>();
+            for (int j = 0; j < passes.size(); j++) {
+                fusedReports.addAll(fused.getReports(j));
+                parallelReports.addAll(parallel.getReports(j));
+            }
+            assertEquals(ParallelAnalysisTest.toString(fusedReports), ParallelAnalysisTest.toString(parallelReports));
+        }
+
+        System.out.printf("Analysis of %d methods: single traversal %.1f ms, %d threads %.1f ms (best of %d)%n",
+                2_001, fusedTime / 1e6, ForkJoinPool.commonPool().getParallelism(), parallelTime / 1e6, runs);
+    }
+}
@@ -0,0 +1,86 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class AKindVisitorBenchmark {
+
+    private static class KindCounter extends PreorderKindVisitor<int[], Void> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_CALL, (node, count) -> count(count));
+            addVisit(Kind.VAR_REF_EXPR, (node, count) -> count(count));
+            addVisit(Kind.ASSIGN_STMT, (node, count) -> count(count));
+            setDefaultValue(() -> null);
+        }
+
+        private static Void count(int[] count) {
+            count[0]++;
+            return null;
+        }
+    }
+
+    private static class LibraryCounter extends PreorderJmmVisitor<int[], Void> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_CALL, (node, count) -> KindCounter.count(count));
+            addVisit(Kind.VAR_REF_EXPR, (node, count) -> KindCounter.count(count));
+            addVisit(Kind.ASSIGN_STMT, (node, count) -> KindCounter.count(count));
+            setDefaultValue(() -> null);
+        }
+    }
+
+    /**
+     * Not a precise benchmark, gives an idea of the cost of finding the visit method of a node (most nodes go to the
+     * default visit, after looking up every kind of their hierarchy).
+     */
+    @Test
+    public void dispatch() {
+        var code = new StringBuilder("import io;\nclass Large {\n    int field;\n");
+        for (int i = 0; i < 2_000; i++) {
+            code.append("    public int method").append(i).append("(int a, int[] b) {\n")
+                    .append("        int c;\n")
+                    .append("        c = a + b[0] * 2 - this.method0(a, b) / 3;\n")
+                    .append("        while (c < 10) { c = c + 1; }\n")
+                    .append("        if (!(c < a)) { io.println(c); } else { c = b.length; }\n")
+                    .append("        return c;\n")
+                    .append("    }\n");
+        }
+        code.append("}\n");
+
+        var root = new JmmParserImpl().parse(code.toString(), Collections.emptyMap()).getRootNode();
+        long nodes = root.getDescendantsAndSelfStream().count();
+
+        var library = new LibraryCounter();
+        var kind = new KindCounter();
+
+        int runs = 10;
+        long libraryTime = Long.MAX_VALUE;
+        long kindTime = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            var libraryCount = new int[1];
+            long start = System.nanoTime();
+            library.visit(root, libraryCount);
+            libraryTime = Math.min(libraryTime, System.nanoTime() - start);
+
+            var kindCount = new int[1];
+            start = System.nanoTime();
+            kind.visit(root, kindCount);
+            kindTime = Math.min(kindTime, System.nanoTime() - start);
+
+            assertEquals(libraryCount[0], kindCount[0]);
+        }
+
+        System.out.printf("Preorder visit of %d nodes: PreorderJmmVisitor %.1f ns/node, PreorderKindVisitor %.1f ns/node"
+                + " (best of %d)%n", nodes, (double) libraryTime / nodes, (double) kindTime / nodes, runs);
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.comp.ast;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.parser.JmmNodeBuilder;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompactJmmNodeBenchmark {
+
+    private interface TreeFactory {
+        JmmNode create(ParseTree tree, JavammParser parser);
+    }
+
+    /**
+     * Not a precise benchmark, gives an idea of the memory used by each node and of the cost of reading the attributes
+     * the passes use the most.
+     */
+    @Test
+    public void footprintAndTraversal() {
+        var code = new StringBuilder("import io;\nclass Large {\n    int field;\n");
+        for (int i = 0; i < 2_000; i++) {
+            code.append("    public int method").append(i).append("(int a, int[] b) {\n")
+                    .append("        int c;\n")
+                    .append("        c = a + b[0] * 2 - this.method0(a, b) / 3;\n")
+                    .append("        while (c < 10) { c = c + 1; }\n")
+                    .append("        if (!(c < a)) { io.println(c); } else { c = b.length; }\n")
+                    .append("        return c;\n")
+                    .append("    }\n");
+        }
+        code.append("}\n");
+
+        var lexer = new JavammLexer(new ANTLRInputStream(code.toString()));
+        var parser = new JavammParser(new CommonTokenStream(lexer));
+        ParseTree tree = parser.program();
+        assertEquals(0, parser.getNumberOfSyntaxErrors());
+
+        TreeFactory generic = AntlrToJmmNodeConverter::convert;
+        TreeFactory compact = JmmNodeBuilder::convert;
+
+        var root = compact.create(tree, parser);
+        int nodes = (int) root.getDescendantsAndSelfStream().count();
+        assertEquals(traverse(generic.create(tree, parser)), traverse(root));
+
+        System.out.printf("AST of %d nodes: JmmNodeImpl %d bytes/node, CompactJmmNode %d bytes/node%n", nodes,
+                footprint(generic, tree, parser) / nodes, footprint(compact, tree, parser) / nodes);
+
+        int runs = 5;
+        var genericRoot = generic.create(tree, parser);
+        long genericTime = Long.MAX_VALUE;
+        long compactTime = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            traverse(genericRoot);
+            genericTime = Math.min(genericTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            traverse(root);
+            compactTime = Math.min(compactTime, System.nanoTime() - start);
+        }
+
+        System.out.printf("Traversal: JmmNodeImpl %.1f ms, CompactJmmNode %.1f ms (best of %d)%n",
+                genericTime / 1e6, compactTime / 1e6, runs);
+    }
+
+    /**
+     * @return bytes used by the trees, after building a few of them
+     */
+    private static long footprint(TreeFactory factory, ParseTree tree, JavammParser parser) {
+        int copies = 3;
+        var trees = new ArrayList<JmmNode>(copies);
+
+        long before = usedMemory();
+        for (int i = 0; i < copies; i++) {
+            trees.add(factory.create(tree, parser));
+        }
+        long after = usedMemory();
+
+        assertEquals(copies, trees.size());
+        return (after - before) / copies;
+    }
+
+    private static long usedMemory() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Reads the kind, position and flags of every node, as the analysis passes do.
+     */
+    private static long traverse(JmmNode node) {
+        long sum = Kind.of(node).ordinal() + NodeUtils.getLine(node) + NodeUtils.getColumn(node);
+        if (NodeUtils.getBooleanAttribute(node, "isArray", "false")
+                || NodeUtils.getBooleanAttribute(node, "isStatic", "false")) {
+            sum++;
+        }
+
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            sum += traverse(node.getJmmChild(i));
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,52 @@
+package pt.up.fe.comp.parser;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp2024.parser.JmmNodeBuilder;
+
+import static org.junit.Assert.assertEquals;
+
+public class JmmNodeBuilderBenchmark {
+
+    /**
+     * Not a precise benchmark, gives an idea of the gain on a large file.
+     */
+    @Test
+    public void largeFile() {
+        var code = new StringBuilder("import io;\nclass Large {\n    int field;\n");
+        for (int i = 0; i < 2_000; i++) {
+            code.append("    public int method").append(i).append("(int a, int[] b) {\n")
+                    .append("        int c;\n")
+                    .append("        c = a + b[0] * 2 - this.method0(a, b) / 3;\n")
+                    .append("        while (c < 10) { c = c + 1; }\n")
+                    .append("        if (!(c < a)) { io.println(c); } else { c = b.length; }\n")
+                    .append("        return c;\n")
+                    .append("    }\n");
+        }
+        code.append("}\n");
+
+        var parser = JmmNodeBuilderTest.newParser(code.toString());
+        ParseTree tree = parser.program();
+        assertEquals(0, parser.getNumberOfSyntaxErrors());
+
+        JmmNodeBuilderTest.assertSameTree(AntlrToJmmNodeConverter.convert(tree, parser),
+                JmmNodeBuilder.convert(tree, parser));
+
+        int runs = 5;
+        long reflection = Long.MAX_VALUE;
+        long direct = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            AntlrToJmmNodeConverter.convert(tree, parser);
+            reflection = Math.min(reflection, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            JmmNodeBuilder.convert(tree, parser);
+            direct = Math.min(direct, System.nanoTime() - start);
+        }
+
+        System.out.printf("CST to AST of %d lines: AntlrToJmmNodeConverter %.1f ms, JmmNodeBuilder %.1f ms (best of %d)%n",
+                code.chars().filter(c -> c == '\n').count(), reflection / 1e6, direct / 1e6, runs);
+    }
+}
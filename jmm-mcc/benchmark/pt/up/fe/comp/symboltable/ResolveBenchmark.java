@@ -0,0 +1,47 @@
+package pt.up.fe.comp.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+
+public class ResolveBenchmark {
+
+    /**
+     * Not a precise benchmark, gives an idea of the cost of the analysis of a method with many locals, each used a few
+     * times.
+     */
+    @Test
+    public void manyLocals() {
+        int locals = 2_000;
+
+        var code = new StringBuilder("class Locals {\n    public int foo(int p) {\n");
+        for (int i = 0; i < locals; i++) {
+            code.append("        int v").append(i).append(";\n");
+        }
+        code.append("        v0 = p;\n");
+        for (int i = 1; i < locals; i++) {
+            code.append("        v").append(i).append(" = v").append(i - 1).append(" + p;\n");
+        }
+        code.append("        return v").append(locals - 1).append(";\n    }\n}\n");
+
+        var parserResult = new JmmParserImpl().parse(code.toString(), Collections.emptyMap());
+
+        int runs = 5;
+        long time = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            var result = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+            time = Math.min(time, System.nanoTime() - start);
+
+            assertFalse(ReportUtils.anyError(result.getReports()));
+        }
+
+        System.out.printf("Semantic analysis of a method with %d locals: %.1f ms (best of %d)%n", locals, time / 1e6,
+                runs);
+    }
+}
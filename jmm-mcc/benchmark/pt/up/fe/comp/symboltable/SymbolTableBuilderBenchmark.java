@@ -0,0 +1,35 @@
+package pt.up.fe.comp.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class SymbolTableBuilderBenchmark {
+
+    /**
+     * Not a precise benchmark, gives an idea of the cost of building the table of a class with thousands of fields and
+     * methods.
+     */
+    @Test
+    public void largeClass() {
+        int members = 5_000;
+        var root = new JmmParserImpl().parse(SymbolTableBuilderTest.largeClass(members), Collections.emptyMap()).getRootNode();
+
+        int runs = 10;
+        long time = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            var table = JmmSymbolTableBuilder.build(root);
+            time = Math.min(time, System.nanoTime() - start);
+
+            assertEquals(members + 1, table.getMethods().size());
+        }
+
+        System.out.printf("Symbol table of a class with %d fields and %d methods: %.1f ms (best of %d)%n",
+                2 * members, members + 1, time / 1e6, runs);
+    }
+}
@@ -0,0 +1,182 @@
+package pt.up.fe.comp2024;
+
+import org.antlr.v4.runtime.atn.PredictionMode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.CompilationResult.Phase;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiles several files in parallel, one task per file, on a fixed pool with one worker per core.
+ * <p>
+ * Each worker reuses its own {@link JmmCompiler}, since the stage implementations are not thread-safe.
+ * <p>
+ * The outputs are named after the class, and are written in the order of the input files. When several files declare
+ * the same class, the first one is written and the others fail.
+ */
+public class BatchCompiler {
+
+    private final Map<String, String> config;
+    private final int numWorkers;
+    private final LongAdder[] phaseNanos;
+    private final LongAdder llParses;
+    private final CompilationCache cache;
+    private final ThreadLocal<JmmCompiler> compilers;
+
+    public BatchCompiler(Map<String, String> config) {
+        this(config, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchCompiler(Map<String, String> config, int numWorkers) {
+        this.config = config;
+        this.numWorkers = numWorkers;
+        this.phaseNanos = new LongAdder[Phase.values().length];
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+        this.llParses = new LongAdder();
+        this.cache = CompilationCache.fromConfig(config).orElse(null);
+        this.compilers = ThreadLocal.withInitial(JmmCompiler::new);
+    }
+
+    /**
+     * Compiles all files and prints a summary with the throughput and the time spent in each stage.
+     *
+     * @param files
+     * @return the number of files that failed to compile
+     */
+    public int run(List<File> files) {
+
+        var outputDir = CompilerConfig.getOutputDir(config).orElse(null);
+        if (outputDir != null) {
+            SpecsIo.mkdir(outputDir);
+        }
+
+        long start = System.nanoTime();
+
+        // the prediction DFA is shared by all workers
+        compilers.get().warmUp();
+
+        ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+        List<Future<CompiledClass>> tasks = new ArrayList<>(files.size());
+        try {
+            for (var file : files) {
+                tasks.add(pool.submit(() -> compileFile(file)));
+            }
+
+            // the file that wrote each class
+            var written = new HashMap<String, File>();
+            int failed = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    var compiledClass = tasks.get(i).get();
+                    if (compiledClass == null) {
+                        failed++;
+                    } else if (outputDir != null && !write(compiledClass, files.get(i), outputDir, written)) {
+                        failed++;
+                    }
+                } catch (ExecutionException e) {
+                    System.err.println("Exception while compiling '" + files.get(i) + "': " + e.getCause());
+                    failed++;
+                }
+            }
+
+            printSummary(files.size(), failed, System.nanoTime() - start);
+
+            return failed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for batch compilation", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @param file
+     * @return the compiled class, or null if the file has errors
+     */
+    private CompiledClass compileFile(File file) {
+        String code = SpecsIo.read(file);
+
+        if (cache != null) {
+            var cached = cache.get(code, config);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        var result = compilers.get().compile(code, config, SpecsIo.removeExtension(file.getName()));
+
+        for (var phase : Phase.values()) {
+            phaseNanos[phase.ordinal()].add(result.getNanos(phase));
+        }
+        if (result.getParseMode() == PredictionMode.LL) {
+            llParses.increment();
+        }
+
+        if (!result.isSuccess()) {
+            var errors = result.getReports().stream()
+                    .filter(report -> report.getType() == ReportType.ERROR)
+                    .map(Report::toString)
+                    .toList();
+            System.err.println("Could not compile '" + file + "':\n" + String.join("\n", errors));
+            return null;
+        }
+
+        var compiledClass = result.getCompiledClass();
+        if (cache != null) {
+            cache.put(code, config, compiledClass);
+        }
+
+        return compiledClass;
+    }
+
+    /**
+     * Writes the outputs of the class, unless an earlier file already wrote a class with the same name.
+     *
+     * @return true if the outputs were written
+     */
+    private static boolean write(CompiledClass compiledClass, File file, File outputDir, Map<String, File> written) {
+        var previous = written.putIfAbsent(compiledClass.getClassName(), file);
+        if (previous != null) {
+            System.err.println("Could not write the outputs of '" + file + "': class '" + compiledClass.getClassName()
+                    + "' is also declared in '" + previous + "'");
+            return false;
+        }
+
+        compiledClass.write(outputDir);
+        return true;
+    }
+
+    private void printSummary(int numFiles, int failed, long wallNanos) {
+        double wallSeconds = wallNanos / 1e9;
+
+        var summary = new StringBuilder();
+        summary.append(String.format("Compiled %d files (%d failed) in %.3f s using %d workers, %.1f files/s%n",
+                numFiles, failed, wallSeconds, numWorkers, numFiles / wallSeconds));
+
+        for (var phase : Phase.values()) {
+            summary.append(String.format("   %-10s %10.3f ms%n", phase, phaseNanos[phase.ordinal()].sum() / 1e6));
+        }
+
+        summary.append(String.format("Parsing: %d files needed the LL fallback%n", llParses.sum()));
+
+        if (cache != null) {
+            summary.append(cache.getSummary()).append(System.lineSeparator());
+        }
+
+        System.out.print(summary);
+    }
+}
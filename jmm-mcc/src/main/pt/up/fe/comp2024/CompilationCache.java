@@ -0,0 +1,299 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache that maps a source to its final Jasmin code and class file, and to what the compiler printed while
+ * compiling it, so that unchanged inputs skip the whole pipeline.
+ * <p>
+ * Entries are keyed by a hash of the source, the options that change the generated code (including the output format)
+ * and the compiler build (see {@link #getCompilerVersion()}).
+ * When the cache grows past its maximum size, the least recently used entries are deleted.
+ * <p>
+ * Can be shared by several threads and processes: entries are written to a temporary file and then moved in place, and
+ * entries that can't be read whole are misses.
+ */
+public class CompilationCache {
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final String EXTENSION = ".jcache";
+
+    private static volatile String compilerVersion;
+
+    private final File folder;
+    private final long maxBytes;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private long currentBytes;
+
+    public CompilationCache(File folder) {
+        this(folder, DEFAULT_MAX_BYTES);
+    }
+
+    public CompilationCache(File folder, long maxBytes) {
+        this.folder = SpecsIo.mkdir(folder);
+        this.maxBytes = maxBytes;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.currentBytes = Arrays.stream(getEntries()).mapToLong(File::length).sum();
+    }
+
+    /**
+     * @param config
+     * @return the cache set in the config, or empty if caching was disabled with '-c=false'
+     */
+    public static Optional<CompilationCache> fromConfig(Map<String, String> config) {
+        return CompilerConfig.getCacheDir(config).map(CompilationCache::new);
+    }
+
+    public Optional<CompiledClass> get(String code, Map<String, String> config) {
+        return get(toBytes(code), config);
+    }
+
+    /**
+     * @param source the UTF-8 bytes of the source, e.g. a mapped file
+     * @param config
+     * @return
+     */
+    public Optional<CompiledClass> get(ByteBuffer source, Map<String, String> config) {
+        var file = getFile(source, config);
+
+        if (!file.isFile()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        CompiledClass compiledClass;
+        try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            var className = in.readUTF();
+            var jasminCode = new String(readBytes(in, in.readInt()), StandardCharsets.UTF_8);
+            int classLength = in.readInt();
+            var classBytes = classLength == -1 ? null : readBytes(in, classLength);
+            var output = new String(readBytes(in, in.readInt()), StandardCharsets.UTF_8);
+            compiledClass = new CompiledClass(className, jasminCode, classBytes, output);
+        } catch (IOException e) {
+            // the entry might have been evicted by another thread while reading it, or be corrupted
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        // mark as recently used
+        file.setLastModified(System.currentTimeMillis());
+        hits.incrementAndGet();
+
+        return Optional.of(compiledClass);
+    }
+
+    public void put(String code, Map<String, String> config, CompiledClass compiledClass) {
+        put(toBytes(code), config, compiledClass);
+    }
+
+    public void put(ByteBuffer source, Map<String, String> config, CompiledClass compiledClass) {
+        var file = getFile(source, config);
+
+        var contents = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(contents)) {
+            out.writeUTF(compiledClass.getClassName());
+            var jasmin = compiledClass.getJasminCode().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(jasmin.length);
+            out.write(jasmin);
+            if (compiledClass.hasClassBytes()) {
+                out.writeInt(compiledClass.getClassBytes().length);
+                out.write(compiledClass.getClassBytes());
+            } else {
+                out.writeInt(-1);
+            }
+            var output = compiledClass.getOutput().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(output.length);
+            out.write(output);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not serialize cache entry", e);
+        }
+
+        synchronized (this) {
+            long previousBytes = file.isFile() ? file.length() : 0;
+            try {
+                // readers in other threads or processes never see a partly written entry
+                var tempFile = Files.createTempFile(folder.toPath(), "entry", ".tmp");
+                try {
+                    Files.write(tempFile, contents.toByteArray());
+                    Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not write cache entry '" + file + "': " + e.getMessage());
+                return;
+            }
+            currentBytes += file.length() - previousBytes;
+
+            if (currentBytes > maxBytes) {
+                evict();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public String getSummary() {
+        return String.format("Cache: %d hits, %d misses (%s)", getHits(), getMisses(), folder.getAbsolutePath());
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is back under its maximum size.
+     */
+    private void evict() {
+        var entries = getEntries();
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+
+        for (var entry : entries) {
+            if (currentBytes <= maxBytes) {
+                break;
+            }
+
+            long length = entry.length();
+            if (entry.delete()) {
+                currentBytes -= length;
+            }
+        }
+    }
+
+    private File[] getEntries() {
+        var entries = folder.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        return entries == null ? new File[0] : entries;
+    }
+
+    /**
+     * The version of the compiler, a hash of the classes it was loaded from (its jar, or the folder of its classes) and
+     * of the other jars and folders of the runtime classpath (e.g. the OLLIR library and the Jasmin assembler, which
+     * also produce the cached code), so that entries written by other builds are not reused. Computed once per
+     * process.
+     */
+    public static String getCompilerVersion() {
+        if (compilerVersion == null) {
+            compilerVersion = computeCompilerVersion();
+        }
+
+        return compilerVersion;
+    }
+
+    private static String computeCompilerVersion() {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+
+            // in classpath order, which decides the classes that are loaded
+            var locations = new LinkedHashSet<Path>();
+            locations.add(Path.of(CompilationCache.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .toAbsolutePath().normalize());
+            for (var entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                if (!entry.isEmpty()) {
+                    locations.add(Path.of(entry).toAbsolutePath().normalize());
+                }
+            }
+
+            for (var location : locations) {
+                digest.update(location.getFileName() == null ? new byte[0]
+                        : location.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                if (Files.isDirectory(location)) {
+                    updateWithClasses(digest, location);
+                } else if (Files.isRegularFile(location)) {
+                    digest.update(Files.readAllBytes(location));
+                }
+            }
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | URISyntaxException | IOException | SecurityException e) {
+            throw new RuntimeException("Could not compute the compiler version for the cache", e);
+        }
+    }
+
+    private static void updateWithClasses(MessageDigest digest, Path folder) throws IOException {
+        List<Path> classFiles;
+        try (var files = Files.walk(folder)) {
+            classFiles = files.filter(file -> file.toString().endsWith(".class")).sorted().toList();
+        }
+
+        for (var classFile : classFiles) {
+            digest.update(folder.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(classFile));
+        }
+    }
+
+    /**
+     * @return the given number of bytes, or an exception if the stream ends before them
+     */
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Invalid length " + length);
+        }
+
+        var bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Expected " + length + " bytes, got " + bytes.length);
+        }
+
+        return bytes;
+    }
+
+    private static ByteBuffer toBytes(String code) {
+        return ByteBuffer.wrap(code.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File getFile(ByteBuffer source, Map<String, String> config) {
+        return new File(folder, getKey(source, config) + EXTENSION);
+    }
+
+    private String getKey(ByteBuffer source, Map<String, String> config) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(getCompilerVersion().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Boolean.toString(CompilerConfig.getOptimize(config)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Integer.toString(CompilerConfig.getRegisterAllocation(config)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(CompilerConfig.getOutputFormat(config).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            // a view, so that the caller can hash the same buffer again
+            digest.update(source.duplicate());
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not compute cache key", e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package pt.up.fe.comp2024;
+
+import org.antlr.v4.runtime.atn.PredictionMode;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.StageResult;
+import pt.up.fe.comp2024.utils.Profiler;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of running the pipeline over a single source, together with the time spent in each stage.
+ */
+public class CompilationResult {
+
+    public enum Phase {
+        PARSE,
+        SEMANTIC,
+        OLLIR,
+        JASMIN
+    }
+
+    private final long[] phaseNanos;
+    private final Profiler profiler;
+    private JmmParserResult parserResult;
+    private PredictionMode parseMode;
+    private JmmSemanticsResult semanticsResult;
+    private OllirResult ollirResult;
+    private JasminResult jasminResult;
+    private byte[] classBytes;
+    private StageResult lastResult;
+
+    public CompilationResult(Profiler profiler) {
+        this.phaseNanos = new long[Phase.values().length];
+        this.profiler = profiler;
+    }
+
+    void setParserResult(JmmParserResult parserResult, long nanos) {
+        this.parserResult = parserResult;
+        setLast(parserResult, Phase.PARSE, nanos);
+    }
+
+    void setParseMode(PredictionMode parseMode) {
+        this.parseMode = parseMode;
+    }
+
+    void setSemanticsResult(JmmSemanticsResult semanticsResult, long nanos) {
+        this.semanticsResult = semanticsResult;
+        setLast(semanticsResult, Phase.SEMANTIC, nanos);
+    }
+
+    void setOllirResult(OllirResult ollirResult, long nanos) {
+        this.ollirResult = ollirResult;
+        setLast(ollirResult, Phase.OLLIR, nanos);
+    }
+
+    void setJasminResult(JasminResult jasminResult, long nanos) {
+        this.jasminResult = jasminResult;
+        setLast(jasminResult, Phase.JASMIN, nanos);
+    }
+
+    void setClassBytes(byte[] classBytes, long nanos) {
+        this.classBytes = classBytes;
+        phaseNanos[Phase.JASMIN.ordinal()] += nanos;
+    }
+
+    private void setLast(StageResult result, Phase phase, long nanos) {
+        this.lastResult = result;
+        phaseNanos[phase.ordinal()] = nanos;
+    }
+
+    public JmmParserResult getParserResult() {
+        return parserResult;
+    }
+
+    /**
+     * @return the prediction mode that parsed the source, LL if the faster SLL mode failed, or null if it was parsed
+     * by the hand-written parser
+     */
+    public PredictionMode getParseMode() {
+        return parseMode;
+    }
+
+    public JmmSemanticsResult getSemanticsResult() {
+        return semanticsResult;
+    }
+
+    public OllirResult getOllirResult() {
+        return ollirResult;
+    }
+
+    public JasminResult getJasminResult() {
+        return jasminResult;
+    }
+
+    /**
+     * @return the final output, only available if the compilation succeeded
+     */
+    public CompiledClass getCompiledClass() {
+        return new CompiledClass(jasminResult.getClassName(), jasminResult.getJasminCode(), classBytes);
+    }
+
+    /**
+     * @return the detailed measurements of each stage, empty if profiling was not enabled
+     */
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the reports of the last stage that ran (each stage result already includes the reports of the previous ones)
+     */
+    public List<Report> getReports() {
+        return lastResult == null ? Collections.emptyList() : lastResult.getReports();
+    }
+
+    /**
+     * @return true if every stage ran and none of them reported errors
+     */
+    public boolean isSuccess() {
+        return jasminResult != null && jasminResult.getJasminCode() != null && !ReportUtils.anyError(getReports());
+    }
+}
@@ -0,0 +1,229 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived compile server, so that repeated compilations do not pay for JVM startup and JIT warm-up.
+ * <p>
+ * Listens on a loopback port and handles one request per connection. The connections are handled by a small pool of
+ * worker threads, each reusing its own {@link JmmCompiler}, and all sharing the compilation cache. A client that sends
+ * nothing for {@link #READ_TIMEOUT_MILLIS} is disconnected, so that it does not hold a worker.
+ * <p>
+ * Request: header lines 'key=value' with the compiler options (e.g. 'optimize=true') and the mandatory
+ * 'sourceLength=&lt;bytes&gt;', an empty line, and then the UTF-8 source.
+ * <p>
+ * Response: 'STATUS OK' or 'STATUS ERROR', one 'REPORT &lt;report&gt;' line per report and, if compilation succeeded,
+ * 'JASMIN &lt;className&gt; &lt;bytes&gt;' followed by the Jasmin code, or 'CLASS &lt;className&gt; &lt;bytes&gt;' followed
+ * by the class file if the output format is 'class'. Ends with 'END'.
+ */
+public class CompileServer {
+
+    public static final int DEFAULT_PORT = 4747;
+
+    public static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private static final String SOURCE_LENGTH = "sourceLength";
+
+    private final int port;
+    private final int numWorkers;
+    private final ThreadLocal<JmmCompiler> compilers;
+    private final CompilationCache cache;
+
+    public CompileServer(int port, Map<String, String> config) {
+        this.port = port;
+        // the workers also wait for slow clients, so there are a few even on a single core
+        this.numWorkers = Math.max(4, Runtime.getRuntime().availableProcessors());
+        this.compilers = ThreadLocal.withInitial(JmmCompiler::new);
+        this.cache = CompilationCache.fromConfig(config).orElse(null);
+    }
+
+    public void run() {
+        // the prediction DFA of the parser and the JIT-compiled code are shared by the compilers of the workers
+        compilers.get().warmUp();
+
+        var threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            var thread = new Thread(runnable, "jmm-server-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (var serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Compile server listening on " + serverSocket.getLocalSocketAddress());
+
+            while (!serverSocket.isClosed()) {
+                try {
+                    var client = serverSocket.accept();
+                    client.setSoTimeout(READ_TIMEOUT_MILLIS);
+                    workers.execute(() -> serve(client));
+                } catch (IOException e) {
+                    System.err.println("Problem while accepting compile request: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not start compile server on port " + port, e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            handle(client);
+        } catch (IOException | RuntimeException e) {
+            // a bad request, or a client that stopped sending, must not stop the server
+            System.err.println("Problem while handling compile request: " + e.getMessage());
+        }
+    }
+
+    private void handle(Socket client) throws IOException {
+        var in = client.getInputStream();
+        var out = new BufferedOutputStream(client.getOutputStream());
+
+        // start from the default options, the client only sends the ones it changes
+        Map<String, String> config = CompilerConfig.getDefault();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int equalSign = line.indexOf('=');
+            if (equalSign == -1) {
+                writeError(out, "Invalid header '" + line + "'");
+                return;
+            }
+            config.put(line.substring(0, equalSign), line.substring(equalSign + 1));
+        }
+
+        if (!config.containsKey(SOURCE_LENGTH)) {
+            writeError(out, "Missing header '" + SOURCE_LENGTH + "'");
+            return;
+        }
+
+        var sourceLength = parseSourceLength(config.remove(SOURCE_LENGTH));
+        if (sourceLength.isEmpty()) {
+            writeError(out, "Header '" + SOURCE_LENGTH + "' expects a non-negative number of bytes");
+            return;
+        }
+
+        var source = in.readNBytes(sourceLength.get());
+        if (source.length < sourceLength.get()) {
+            writeError(out, "Expected " + sourceLength.get() + " bytes of source, got " + source.length);
+            return;
+        }
+        var code = new String(source, StandardCharsets.UTF_8);
+
+        Optional<CompiledClass> cached;
+        try {
+            cached = cache == null ? Optional.empty() : cache.get(code, config);
+        } catch (RuntimeException e) {
+            writeError(out, "Invalid options: " + e);
+            return;
+        }
+        if (cached.isPresent()) {
+            write(out, "STATUS OK");
+            writeCompiledClass(out, cached.get());
+            write(out, "END");
+            out.flush();
+            return;
+        }
+
+        CompilationResult result;
+        try {
+            result = compilers.get().compile(code, config);
+        } catch (Throwable e) {
+            // e.g. a StackOverflowError in the parser on deeply nested code, which must not stop the server. The crash
+            // might leave the compiler in a bad state
+            compilers.remove();
+            writeError(out, "Exception during compilation: " + e);
+            return;
+        }
+
+        write(out, result.isSuccess() ? "STATUS OK" : "STATUS ERROR");
+        for (var report : result.getReports()) {
+            writeReport(out, report);
+        }
+
+        if (result.isSuccess()) {
+            var compiledClass = result.getCompiledClass();
+            if (cache != null) {
+                cache.put(code, config, compiledClass);
+            }
+            writeCompiledClass(out, compiledClass);
+        }
+
+        write(out, "END");
+        out.flush();
+    }
+
+    /**
+     * @param sourceLength
+     * @return the length, or empty if it is not a non-negative int
+     */
+    private static Optional<Integer> parseSourceLength(String sourceLength) {
+        try {
+            int length = Integer.parseInt(sourceLength);
+            return length < 0 ? Optional.empty() : Optional.of(length);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void writeCompiledClass(OutputStream out, CompiledClass compiledClass) throws IOException {
+        var className = compiledClass.getClassName();
+
+        if (compiledClass.hasClassBytes()) {
+            write(out, "CLASS " + className + " " + compiledClass.getClassBytes().length);
+            out.write(compiledClass.getClassBytes());
+            return;
+        }
+
+        var jasmin = compiledClass.getJasminCode().getBytes(StandardCharsets.UTF_8);
+        write(out, "JASMIN " + className + " " + jasmin.length);
+        out.write(jasmin);
+    }
+
+    private void writeError(OutputStream out, String message) throws IOException {
+        write(out, "STATUS ERROR");
+        write(out, "REPORT " + message);
+        write(out, "END");
+        out.flush();
+    }
+
+    private void writeReport(OutputStream out, Report report) throws IOException {
+        // one report per line
+        write(out, "REPORT " + report.toString().replace("\n", " "));
+    }
+
+    private void write(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a header line byte by byte, so that nothing after the line is consumed.
+     */
+    private String readLine(InputStream in) throws IOException {
+        var line = new ByteArrayOutputStream();
+
+        int current;
+        while ((current = in.read()) != -1 && current != '\n') {
+            if (current != '\r') {
+                line.write(current);
+            }
+        }
+
+        return line.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Final output of a compilation: the Jasmin code and, if the output format is 'class', the assembled class file.
+ */
+public class CompiledClass {
+
+    private final String className;
+    private final String jasminCode;
+    private final byte[] classBytes;
+    private final String output;
+
+    public CompiledClass(String className, String jasminCode, byte[] classBytes) {
+        this(className, jasminCode, classBytes, "");
+    }
+
+    /**
+     * @param className
+     * @param jasminCode
+     * @param classBytes
+     * @param output     what the compiler printed while compiling the class, see {@link #getOutput()}
+     */
+    public CompiledClass(String className, String jasminCode, byte[] classBytes, String output) {
+        this.className = className;
+        this.jasminCode = jasminCode;
+        this.classBytes = classBytes;
+        this.output = output;
+    }
+
+    /**
+     * @param output
+     * @return the same class, with what the compiler printed while compiling it
+     */
+    public CompiledClass withOutput(String output) {
+        return new CompiledClass(className, jasminCode, classBytes, output);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getJasminCode() {
+        return jasminCode;
+    }
+
+    /**
+     * @return the bytes of the class file, or null if the code was not assembled
+     */
+    public byte[] getClassBytes() {
+        return classBytes;
+    }
+
+    public boolean hasClassBytes() {
+        return classBytes != null;
+    }
+
+    /**
+     * @return what the compiler printed to the standard output while compiling the class (e.g. the AST), kept in the
+     * compilation cache so that the launcher prints the same on a cache hit. Empty if not recorded
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * Writes '&lt;className&gt;.class' if the class was assembled, '&lt;className&gt;.j' otherwise.
+     *
+     * @param outputDir
+     */
+    public void write(File outputDir) {
+        SpecsIo.mkdir(outputDir);
+
+        if (!hasClassBytes()) {
+            SpecsIo.write(new File(outputDir, className + ".j"), jasminCode);
+            return;
+        }
+
+        var classFile = new File(outputDir, className + ".class");
+        try (var out = new FileOutputStream(classFile)) {
+            out.write(classBytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write class file '" + classFile + "'", e);
+        }
+    }
+}
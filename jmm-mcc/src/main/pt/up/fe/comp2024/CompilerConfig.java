@@ -1,7 +1,11 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.specs.util.SpecsIo;
+
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,6 +14,14 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH_INPUT = "batchInput";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String SERVER_PORT = "serverPort";
+    private static final String CACHE_DIR = "cacheDir";
+    private static final String PROFILE_DIR = "profileDir";
+    private static final String OUTPUT_FORMAT = "outputFormat";
+    private static final String WARM_UP = "warmUp";
+    private static final String PARSER = "parser";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +30,14 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH_INPUT);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("s", CompilerConfig.SERVER_PORT);
+        shortToLong.put("c", CompilerConfig.CACHE_DIR);
+        shortToLong.put("p", CompilerConfig.PROFILE_DIR);
+        shortToLong.put("f", CompilerConfig.OUTPUT_FORMAT);
+        shortToLong.put("w", CompilerConfig.WARM_UP);
+        shortToLong.put("a", CompilerConfig.PARSER);
     }
 
 
@@ -32,6 +52,166 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    /**
+     * Batch input can be either a folder (all .jmm files inside it are compiled, recursively)
+     * or a comma-separated list of files.
+     *
+     * @param config
+     * @return the files to compile in batch mode, or an empty list if batch mode is not enabled
+     */
+    public static List<File> getBatchInputFiles(Map<String, String> config) {
+        var batchInput = config.get(BATCH_INPUT);
+
+        if (batchInput == null) {
+            return new ArrayList<>();
+        }
+
+        var folder = new File(batchInput);
+        if (folder.isDirectory()) {
+            return SpecsIo.getFilesRecursive(folder, "jmm");
+        }
+
+        var files = new ArrayList<File>();
+        for (var path : batchInput.split(",")) {
+            if (!path.isBlank()) {
+                files.add(new File(path.trim()));
+            }
+        }
+
+        return files;
+    }
+
+    public static boolean isBatch(Map<String, String> config) {
+        return config.containsKey(BATCH_INPUT);
+    }
+
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        var outputDir = config.get(OUTPUT_DIR);
+
+        if (outputDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(outputDir));
+    }
+
+    /**
+     * '-w' compiles the bundled warm-up programs and exits, used to train the class data archive of the distribution.
+     *
+     * @param config
+     * @return
+     */
+    public static boolean isWarmUp(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(WARM_UP, "false"));
+    }
+
+    public static boolean isServer(Map<String, String> config) {
+        return config.containsKey(SERVER_PORT);
+    }
+
+    /**
+     * @param config
+     * @return the loopback port the compile server listens on, {@link CompileServer#DEFAULT_PORT} if '-s' has no value
+     */
+    public static int getServerPort(Map<String, String> config) {
+        var port = config.get(SERVER_PORT);
+
+        if (port == null || port.equals("true")) {
+            return CompileServer.DEFAULT_PORT;
+        }
+
+        return Integer.parseInt(port);
+    }
+
+    /**
+     * The compilation cache is enabled by default, '-c=false' disables it and '-c=&lt;folder&gt;' changes its location.
+     *
+     * @param config
+     * @return the folder of the compilation cache, or empty if the cache is disabled
+     */
+    public static Optional<File> getCacheDir(Map<String, String> config) {
+        var cacheDir = config.getOrDefault(CACHE_DIR, "true");
+
+        if (cacheDir.equals("false")) {
+            return Optional.empty();
+        }
+
+        if (cacheDir.equals("true")) {
+            return Optional.of(SpecsIo.getTempFolder("jmm-cache"));
+        }
+
+        return Optional.of(new File(cacheDir));
+    }
+
+    /**
+     * Profiling is disabled by default, '-p' writes the reports to the working directory and '-p=&lt;folder&gt;' to the
+     * given folder.
+     *
+     * @param config
+     * @return the folder where the JSON profiling report of each compilation is written, or empty if disabled
+     */
+    public static Optional<File> getProfileDir(Map<String, String> config) {
+        var profileDir = config.get(PROFILE_DIR);
+
+        if (profileDir == null || profileDir.equals("false")) {
+            return Optional.empty();
+        }
+
+        if (profileDir.equals("true")) {
+            return Optional.of(SpecsIo.getWorkingDir());
+        }
+
+        return Optional.of(new File(profileDir));
+    }
+
+    /**
+     * @param config
+     * @return 'jasmin' (default) to stop at the Jasmin code, or 'class' to also assemble it into a class file
+     */
+    public static String getOutputFormat(Map<String, String> config) {
+        var outputFormat = config.getOrDefault(OUTPUT_FORMAT, "jasmin");
+
+        if (!outputFormat.equals("jasmin") && !outputFormat.equals("class")) {
+            throw new RuntimeException("Unrecognized output format '" + outputFormat + "', expected 'jasmin' or 'class'");
+        }
+
+        return outputFormat;
+    }
+
+    public static boolean isClassOutput(Map<String, String> config) {
+        return getOutputFormat(config).equals("class");
+    }
+
+    /**
+     * @param config
+     * @param outputFormat 'jasmin' or 'class'
+     */
+    public static void setOutputFormat(Map<String, String> config, String outputFormat) {
+        if (!outputFormat.equals("jasmin") && !outputFormat.equals("class")) {
+            throw new RuntimeException("Unrecognized output format '" + outputFormat + "', expected 'jasmin' or 'class'");
+        }
+
+        config.put(OUTPUT_FORMAT, outputFormat);
+    }
+
+    /**
+     * @param config
+     * @return 'antlr' (default) for the parser generated from the grammar, or 'pratt' for the hand-written parser
+     */
+    public static String getParser(Map<String, String> config) {
+        var parser = config.getOrDefault(PARSER, "antlr");
+
+        if (!parser.equals("antlr") && !parser.equals("pratt")) {
+            throw new RuntimeException("Unrecognized parser '" + parser + "', expected 'antlr' or 'pratt'");
+        }
+
+        return parser;
+    }
+
+    public static boolean isPrattParser(Map<String, String> config) {
+        return getParser(config).equals("pratt");
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
@@ -89,23 +269,43 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
-        if (!config.containsKey(INPUT_FILE)) {
+        if (isBatch(config)) {
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
-        }
+            // batch mode does not need a single input file, but every listed file must exist
+            for (var file : getBatchInputFiles(config)) {
+                if (!file.isFile()) {
+                    throw new RuntimeException("Could not find input file '" + file + "'");
+                }
+            }
+        } else if (isServer(config)) {
 
-        // make sure we save the absolute path of the input file
-        var inputFile = new File(config.get(INPUT_FILE));
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Could not find input file '" + inputFile + "'");
-        }
+            // sources are sent by the clients
+            getServerPort(config);
+        } else if (isWarmUp(config)) {
+
+            // sources are bundled with the compiler
+        } else {
+
+            if (!config.containsKey(INPUT_FILE)) {
+
+                throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>' or '-b=<FOLDER_OR_FILES>' (or '-s' to start a compile server)");
+            }
+
+            // make sure we save the absolute path of the input file
+            var inputFile = new File(config.get(INPUT_FILE));
+            if (!inputFile.isFile()) {
+                throw new RuntimeException("Could not find input file '" + inputFile + "'");
+            }
 
-        var absolutePath = inputFile.getAbsolutePath();
-        config.put(INPUT_FILE, absolutePath);
+            var absolutePath = inputFile.getAbsolutePath();
+            config.put(INPUT_FILE, absolutePath);
+        }
 
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getOutputFormat(config);
+        getParser(config);
 
         return config;
     }
@@ -0,0 +1,225 @@
+package pt.up.fe.comp2024;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Library entry point to run many small compile jobs concurrently, e.g. behind another service.
+ * <p>
+ * At most {@code maxConcurrency} jobs run at the same time, and at most {@code maxQueued} more wait for a worker.
+ * When both are full, {@link #submit} rejects the job right away, while {@link #submitBlocking} waits until there is
+ * room, so a burst of jobs can never grow the queue without bounds.
+ * <p>
+ * Each worker thread reuses its own {@link JmmCompiler}, since the stage implementations are not thread-safe.
+ * The service itself is thread-safe.
+ */
+public class CompilerService implements AutoCloseable {
+
+    private final ExecutorService pool;
+    private final Semaphore permits;
+    private final ThreadLocal<JmmCompiler> compilers;
+    private final Metrics metrics;
+
+    public CompilerService() {
+        this(Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxConcurrency maximum number of jobs running at the same time
+     * @param maxQueued      maximum number of jobs waiting for a worker
+     */
+    public CompilerService(int maxConcurrency, int maxQueued) {
+        this(maxConcurrency, maxQueued, JmmCompiler::new);
+    }
+
+    /**
+     * @param maxConcurrency maximum number of jobs running at the same time
+     * @param maxQueued      maximum number of jobs waiting for a worker
+     * @param newCompiler    creates the compiler of each worker thread, and a new one after a compilation crashes
+     */
+    public CompilerService(int maxConcurrency, int maxQueued, Supplier<JmmCompiler> newCompiler) {
+        if (maxConcurrency < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid limits: maxConcurrency=" + maxConcurrency
+                    + ", maxQueued=" + maxQueued);
+        }
+
+        var threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "jmm-compiler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.permits = new Semaphore(maxConcurrency + maxQueued);
+        this.compilers = ThreadLocal.withInitial(newCompiler);
+        this.metrics = new Metrics();
+    }
+
+    /**
+     * Submits a job, or rejects it if the service is overloaded.
+     *
+     * @param code
+     * @param config
+     * @return the result of the compilation, or a future that fails with a RejectedExecutionException if there was no
+     * room for the job
+     */
+    public CompletableFuture<CompilationResult> submit(String code, Map<String, String> config) {
+        if (!permits.tryAcquire()) {
+            metrics.rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Compiler service is overloaded"));
+        }
+
+        return enqueue(code, config);
+    }
+
+    /**
+     * Submits a job, waiting until there is room for it if the service is overloaded.
+     *
+     * @param code
+     * @param config
+     * @return the result of the compilation
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public CompletableFuture<CompilationResult> submitBlocking(String code, Map<String, String> config)
+            throws InterruptedException {
+        permits.acquire();
+        return enqueue(code, config);
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stops accepting jobs, and waits for the submitted ones to finish.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<CompilationResult> enqueue(String code, Map<String, String> config) {
+        long submitted = System.nanoTime();
+        metrics.queued.incrementAndGet();
+
+        var future = new CompletableFuture<CompilationResult>();
+        try {
+            pool.execute(() -> run(code, config, submitted, future));
+        } catch (RejectedExecutionException e) {
+            // the service was closed
+            metrics.queued.decrementAndGet();
+            metrics.rejected.increment();
+            permits.release();
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private void run(String code, Map<String, String> config, long submitted, CompletableFuture<CompilationResult> future) {
+        long started = System.nanoTime();
+        metrics.queued.decrementAndGet();
+        metrics.running.incrementAndGet();
+
+        CompilationResult result = null;
+        Throwable error = null;
+        try {
+            result = compilers.get().compile(code, config);
+        } catch (Throwable e) {
+            // a crash in one of the stages might leave the compiler in a bad state
+            compilers.remove();
+            error = e;
+        } finally {
+            metrics.running.decrementAndGet();
+            metrics.record(started - submitted, System.nanoTime() - submitted);
+            permits.release();
+        }
+
+        // only complete after updating the metrics, so that callers see them up to date
+        if (error == null) {
+            future.complete(result);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Counters of the service, updated as jobs run. Latencies are measured from submission to completion, and include
+     * the time waiting in the queue.
+     */
+    public static class Metrics {
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        private Metrics() {
+        }
+
+        private void record(long waitNanos, long latencyNanos) {
+            completed.increment();
+            totalWaitNanos.add(waitNanos);
+            totalLatencyNanos.add(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        /**
+         * @return the number of jobs waiting for a worker
+         */
+        public int getQueueDepth() {
+            return queued.get();
+        }
+
+        public int getRunning() {
+            return running.get();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public double getMeanWaitMillis() {
+            long count = getCompleted();
+            return count == 0 ? 0 : totalWaitNanos.sum() / 1e6 / count;
+        }
+
+        public double getMeanLatencyMillis() {
+            long count = getCompleted();
+            return count == 0 ? 0 : totalLatencyNanos.sum() / 1e6 / count;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("queued=%d running=%d completed=%d rejected=%d meanWait=%.3fms meanLatency=%.3fms maxLatency=%.3fms",
+                    getQueueDepth(), getRunning(), getCompleted(), getRejected(),
+                    getMeanWaitMillis(), getMeanLatencyMillis(), getMaxLatencyMillis());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package pt.up.fe.comp2024;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.JmmPrattParser;
+import pt.up.fe.comp2024.utils.Profiler;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs the full pipeline (parsing, semantic analysis, OLLIR generation and Jasmin generation, plus assembling the class
+ * file if the output format is 'class') over a single source, stopping at the first stage that reports errors.
+ * <p>
+ * Instances can be reused for several compilations (e.g. by the compile server), but the stage implementations keep
+ * state while running, so use one JmmCompiler instance per thread.
+ */
+public class JmmCompiler {
+
+    /**
+     * Bundled programs that use every construct of the language, compiled to warm up the compiler.
+     */
+    public static final List<String> WARM_UP_CORPUS = List.of(
+            "pt/up/fe/comp2024/warmup/WarmUp.jmm",
+            "pt/up/fe/comp2024/warmup/WarmUpSimple.jmm");
+
+    /**
+     * Programs of {@link #WARM_UP_CORPUS} that every stage supports, up to the class file, compiled to warm up the
+     * later stages.
+     */
+    public static final List<String> PIPELINE_WARM_UP_CORPUS = List.of(
+            "pt/up/fe/comp2024/warmup/WarmUpSimple.jmm");
+
+    private final JmmParserImpl parser;
+    private final JmmPrattParser prattParser;
+    private final JmmAnalysisImpl analysis;
+    private final JmmOptimizationImpl optimization;
+    private final JasminBackendImpl backend;
+
+    public JmmCompiler() {
+        this.parser = new JmmParserImpl();
+        // falls back to the ANTLR parser on errors
+        this.prattParser = new JmmPrattParser(parser);
+        this.analysis = new JmmAnalysisImpl();
+        this.optimization = new JmmOptimizationImpl();
+        this.backend = new JasminBackendImpl();
+    }
+
+    /**
+     * Parses the programs of {@link #WARM_UP_CORPUS} and compiles the programs of {@link #PIPELINE_WARM_UP_CORPUS}, so
+     * that the first real compilations do not pay for building the prediction DFA of the parser, loading the classes
+     * of each stage and running them in the interpreter.
+     */
+    public void warmUp() {
+        for (var resource : WARM_UP_CORPUS) {
+            parser.warmUp(SpecsIo.getResource(resource));
+        }
+
+        // also warms up the assembler
+        Map<String, String> config = CompilerConfig.getDefault();
+        CompilerConfig.setOutputFormat(config, "class");
+        for (var resource : PIPELINE_WARM_UP_CORPUS) {
+            var result = compile(SpecsIo.getResource(resource), config);
+            if (ReportUtils.anyError(result.getReports())) {
+                throw new RuntimeException("Could not compile warm-up program '" + resource + "': "
+                        + result.getReports());
+            }
+        }
+    }
+
+    public CompilationResult compile(String code, Map<String, String> config) {
+        return compile(code, config, "source");
+    }
+
+    /**
+     * @param code
+     * @param config
+     * @param sourceName name of the profiling report, if profiling is enabled with '-p'
+     * @return
+     */
+    public CompilationResult compile(String code, Map<String, String> config, String sourceName) {
+        return compile(() -> parse(code, config), config, sourceName);
+    }
+
+    /**
+     * Same as {@link #compile(String, Map, String)}, but the ANTLR parser reads the code from the given input (e.g. a
+     * {@link pt.up.fe.comp2024.parser.MappedCharStream}) without converting it to a String. The hand-written parser
+     * still needs the code as a String.
+     *
+     * @param input
+     * @param config
+     * @param sourceName name of the profiling report, if profiling is enabled with '-p'
+     * @return
+     */
+    public CompilationResult compile(CharStream input, Map<String, String> config, String sourceName) {
+        if (CompilerConfig.isPrattParser(config)) {
+            return compile(input.getText(Interval.of(0, input.size() - 1)), config, sourceName);
+        }
+
+        return compile(() -> parser.parse(input, config), config, sourceName);
+    }
+
+    private CompilationResult compile(Supplier<JmmParserResult> parse, Map<String, String> config, String sourceName) {
+
+        var profiler = new Profiler(CompilerConfig.getProfileDir(config).isPresent());
+        var result = new CompilationResult(profiler);
+        analysis.setProfiler(profiler);
+
+        runStages(parse, config, result, profiler);
+
+        CompilerConfig.getProfileDir(config)
+                .ifPresent(dir -> profiler.writeJson(new File(SpecsIo.mkdir(dir), sourceName + ".profile.json")));
+
+        return result;
+    }
+
+    private JmmParserResult parse(String code, Map<String, String> config) {
+        return CompilerConfig.isPrattParser(config) ? prattParser.parse(code, config) : parser.parse(code, config);
+    }
+
+    private void runStages(Supplier<JmmParserResult> parse, Map<String, String> config, CompilationResult result,
+                           Profiler profiler) {
+
+        // Parsing stage
+        long start = System.nanoTime();
+        JmmParserResult parserResult = profiler.measure("parse", parse);
+        result.setParserResult(parserResult, System.nanoTime() - start);
+        result.setParseMode(CompilerConfig.isPrattParser(config) ? prattParser.getLastPredictionMode()
+                : parser.getLastPredictionMode());
+        if (parserResult.getRootNode() == null || ReportUtils.anyError(parserResult.getReports())) {
+            return;
+        }
+
+        // Semantic Analysis stage
+        start = System.nanoTime();
+        JmmSemanticsResult semanticsResult = profiler.measure("semantic", () -> analysis.semanticAnalysis(parserResult));
+        result.setSemanticsResult(semanticsResult, System.nanoTime() - start);
+        if (ReportUtils.anyError(semanticsResult.getReports())) {
+            return;
+        }
+
+        // Optimization stage
+        start = System.nanoTime();
+        OllirResult ollirResult = profiler.measure("ollir", () -> optimization.toOllir(semanticsResult));
+        result.setOllirResult(ollirResult, System.nanoTime() - start);
+        if (ReportUtils.anyError(ollirResult.getReports())) {
+            return;
+        }
+
+        // Code generation stage
+        start = System.nanoTime();
+        JasminResult jasminResult = profiler.measure("jasmin", () -> backend.toJasmin(ollirResult));
+        result.setJasminResult(jasminResult, System.nanoTime() - start);
+        if (!CompilerConfig.isClassOutput(config) || ReportUtils.anyError(jasminResult.getReports())) {
+            return;
+        }
+
+        // Assemble in memory, counts as part of the code generation stage
+        start = System.nanoTime();
+        byte[] classBytes = profiler.measure("assemble", () -> backend.assemble(jasminResult));
+        result.setClassBytes(classBytes, System.nanoTime() - start);
+    }
+}
@@ -1,63 +1,108 @@
 package pt.up.fe.comp2024;
 
 import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
-import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.MappedCharStream;
+import pt.up.fe.comp2024.utils.TeeOutputStream;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Optional;
 
 public class Launcher {
 
+    /**
+     * Inputs from this size up are mapped into memory instead of read into a String.
+     */
+    private static final long MAPPED_INPUT_BYTES = 1024 * 1024;
+
     public static void main(String[] args) {
 
         SpecsSystem.programStandardInit();
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
+        if (CompilerConfig.isBatch(config)) {
+            var batchCompiler = new BatchCompiler(config);
+            int failed = batchCompiler.run(CompilerConfig.getBatchInputFiles(config));
+            if (failed > 0) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (CompilerConfig.isWarmUp(config)) {
+            new JmmCompiler().warmUp();
+            return;
+        }
+
+        if (CompilerConfig.isServer(config)) {
+            new CompileServer(CompilerConfig.getServerPort(config), config).run();
+            return;
+        }
+
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
-
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
-
-        // Print AST
-        System.out.println(parserResult.getRootNode().toTree());
+        // Large (ASCII) inputs are read straight from the mapped file, the others are decoded into a String
+        var mapped = inputFile.length() >= MAPPED_INPUT_BYTES ? MappedCharStream.open(inputFile)
+                : Optional.<MappedCharStream>empty();
+        String code = mapped.isPresent() ? null : SpecsIo.read(inputFile);
+        ByteBuffer source = mapped.map(MappedCharStream::getBytes)
+                .orElseGet(() -> ByteBuffer.wrap(code.getBytes(StandardCharsets.UTF_8)));
+
+        // Unchanged inputs skip the whole pipeline
+        var cache = CompilationCache.fromConfig(config);
+        var cached = cache.flatMap(c -> c.get(source, config));
+        if (cached.isPresent()) {
+            // Same output as the compilation that was cached
+            System.out.print(cached.get().getOutput());
+            System.out.flush();
+
+            CompilerConfig.getOutputDir(config).ifPresent(cached.get()::write);
+            return;
+        }
 
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+        // Keeps a copy of the output, for the cache
+        var stdout = System.out;
+        var printed = new ByteArrayOutputStream();
+        if (cache.isPresent()) {
+            System.setOut(new PrintStream(new TeeOutputStream(stdout, printed), true));
+        }
 
+        CompilationResult result;
+        try {
+            var compiler = new JmmCompiler();
+            var sourceName = SpecsIo.removeExtension(inputFile.getName());
+            result = mapped.isPresent() ? compiler.compile(mapped.get(), config, sourceName)
+                    : compiler.compile(code, config, sourceName);
+
+            // Print AST
+            if (result.getParserResult().getRootNode() != null) {
+                System.out.println(result.getParserResult().getRootNode().toTree());
+            }
+        } finally {
+            System.out.flush();
+            System.setOut(stdout);
+        }
 
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
+        // Stops at the first stage with errors
+        TestUtils.noErrors(result.getReports());
 
         // Print OLLIR code
-        //System.out.println(ollirResult.getOllirCode());
-
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+        //System.out.println(result.getOllirResult().getOllirCode());
 
         // Print Jasmin code
-        //System.out.println(jasminResult.getJasminCode());
+        //System.out.println(result.getJasminResult().getJasminCode());
 
+        var compiledClass = result.getCompiledClass().withOutput(printed.toString());
+        cache.ifPresent(c -> c.put(source, config, compiledClass));
+        CompilerConfig.getOutputDir(config).ifPresent(compiledClass::write);
     }
 
 }
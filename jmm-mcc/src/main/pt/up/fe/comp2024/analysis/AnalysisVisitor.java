@@ -1,25 +1,28 @@
 package pt.up.fe.comp2024.analysis;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
 
 /**
  *
  */
-public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
+public abstract class AnalysisVisitor extends PreorderKindVisitor<SymbolTable, Void> implements AnalysisPass {
 
     public static final List<String> ARITHMETIC_OPERATORS = Arrays.asList("*", "/", "-", "+", "<");
     public static final List<String> BOOLEAN_OPERATORS = Arrays.asList("&&", "||");
     private final List<Report> reports;
+    private MethodContext methodContext;
 
     public AnalysisVisitor() {
         reports = new ArrayList<>();
@@ -35,101 +38,74 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
     }
 
 
-    @Override
-    public List<Report> analyze(JmmNode root, SymbolTable table) {
-        // Visit the node
-        visit(root, table);
-
-        // Return reports
-        return getReports();
+    /**
+     * @return the method whose nodes are being visited, or null outside methods
+     */
+    protected MethodContext getMethodContext() {
+        return methodContext;
     }
 
-    protected Type getVariableType(JmmNode variable, SymbolTable table, String currentMethod) {
-        // If the value is a variable
-        if (variable.getKind().equals(Kind.VAR_REF_EXPR.toString())) {
-            if (table.getParameters(currentMethod).stream()
-                    .anyMatch(param -> param.getName().equals(variable.get("name")))) {
-
-                for (var symbol : table.getParameters(currentMethod)) {
-                    if (symbol.getName().equals(variable.get("name"))) {
-                        return symbol.getType();
-                    }
-                }
-
-                return null;
-            }
-
-            if (table.getLocalVariables(currentMethod).stream()
-                    .anyMatch(varDecl -> varDecl.getName().equals(variable.get("name")))) {
-
-                List<Symbol> symbols = table.getLocalVariables(currentMethod);
-
-                for (var symbol : symbols) {
-                    if (symbol.getName().equals(variable.get("name"))) {
-                        return symbol.getType();
-                    }
-                }
-            }
-
-            if (table.getFields().stream()
-                    .anyMatch(param -> param.getName().equals(variable.get("name")))) {
-
-                for (var symbol : table.getFields()) {
-                    if (symbol.getName().equals(variable.get("name"))) {
-                        return symbol.getType();
-                    }
-                }
-            }
-
-        }
-
-        // If the value is const
-        if (variable.getKind().equals(Kind.CONST.toString())) {
-            if (variable.get("name").equals("true") || variable.get("name").equals("false")) {
-                return new Type("boolean", false);
-            } else {
-                return new Type("int", false);
-            }
-        }
-
-        // If the value is another node
-        if (variable.getKind().equals(Kind.BINARY_EXPR.toString())) {
-            var operator = variable.get("name");
-            if (ARITHMETIC_OPERATORS.contains(operator) && !operator.equals("<")) {
-                return new Type("int", false);
-            }
-            return new Type("boolean", false);
-        }
+    /**
+     * @return the name of the method whose nodes are being visited, or null outside methods
+     */
+    protected String getCurrentMethod() {
+        return methodContext == null ? null : methodContext.getName();
+    }
 
-        // If the variable is a function
-        if (variable.getKind().equals(Kind.METHOD_CALL.toString())) {
-            var methods = table.getMethods();
+    /**
+     * Set by {@link FusedAnalysis} when it visits a method declaration, before the visits of the passes.
+     *
+     * @param methodContext
+     */
+    void setMethodContext(MethodContext methodContext) {
+        this.methodContext = methodContext;
+    }
 
-            for (var method : methods) {
-                if (method.equals(variable.get("name"))) {
-                    return table.getReturnType(method);
-                }
-            }
-        }
+    @Override
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        // Visit the node, with the method context kept up to date
+        var analysis = new FusedAnalysis(List.of(this));
+        analysis.analyze(root, table);
 
-        if (variable.getKind().equals(Kind.NEW_OBJECT.toString())) {
-            var type = variable.getChild(0);
-            return new Type(type.get("name"), false);
+        var failure = analysis.getFailure(0);
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
         }
-
-        if (variable.getKind().equals("ArrayAccess")) {
-            return new Type("int", false);
+        if (failure != null) {
+            throw new RuntimeException(failure);
         }
 
-        if (variable.getKind().equals("Length")) {
-            return new Type("int", false);
-        }
+        // Return reports
+        return getReports();
+    }
 
-        if (variable.getKind().equals(Kind.NEW_ARRAY.toString()) || variable.getKind().equals(Kind.ARRAY_CALL.toString())) {
-            return new Type("int", true);
-        }
+    /**
+     * Used by {@link FusedAnalysis}, which visits the nodes of several passes in the same traversal.
+     *
+     * @param node
+     * @return the visit this pass added for the node, or null if the pass ignores it
+     */
+    BiFunction<JmmNode, SymbolTable, Void> getPassVisit(JmmNode node) {
+        return getOwnVisit(node);
+    }
 
+    /**
+     * @param table
+     * @param currentMethod
+     * @param name
+     * @return the parameter, local or field the name refers to in the method
+     */
+    protected Optional<ResolvedSymbol> resolve(SymbolTable table, String currentMethod, String name) {
+        return TypeUtils.resolve(table, currentMethod, name);
+    }
 
-        return new Type("", false);
+    /**
+     * @param variable an expression
+     * @param table
+     * @param currentMethod
+     * @return the type of the expression, annotated by {@link TypeAnnotation} before the passes
+     */
+    protected Type getVariableType(JmmNode variable, SymbolTable table, String currentMethod) {
+        return TypeAnnotation.getType(variable, table, currentMethod);
     }
 }
@@ -0,0 +1,297 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeIndex;
+import pt.up.fe.comp2024.utils.Profiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Runs several analysis passes with a single walk over the AST, instead of one traversal per pass.
+ * <p>
+ * The nodes are taken from a {@link NodeIndex}, in preorder, and only the kinds that some pass added a visit for are
+ * visited, so the nodes that no pass looks at (types, parameters, literals...) are skipped without going through the
+ * tree. Each node is given, in the order of the passes, to the passes that added a visit for its kind. Before the
+ * visits of a method declaration, the passes are given its {@link MethodContext}, and the types of the expressions of
+ * the method are annotated (see {@link TypeAnnotation}). A pass sees the same visits, in the same order, as if it
+ * visited the tree alone, so its reports are the same. If a visit throws an exception, that pass is not visited again
+ * and the exception is kept, as when the exception stops the traversal of that pass. Passes that are not an
+ * {@link AnalysisVisitor} are run on their own after the walk.
+ * <p>
+ * Every pass analyses the whole tree, use {@link #getReports(int)} and {@link #getFailure(int)} to decide which results
+ * to keep. One instance per analysis, like the passes.
+ */
+public class FusedAnalysis {
+
+    private static final int NUM_KINDS = Kind.values().length;
+
+    private final List<AnalysisPass> passes;
+    private final List<List<Report>> reports;
+    private final List<Exception> failures;
+
+    // for each kind, the passes that visit it, resolved the first time a node of that kind is visited
+    private final Dispatch[] dispatches;
+
+    // time and allocated bytes of the visits of each pass, only measured when profiling
+    private boolean profiling;
+    private final long[] passNanos;
+    private final long[] passAllocatedBytes;
+
+    // for each kind, if some pass visits it, resolved the first time the index is walked
+    private NodeIndex visitedIndex;
+    private boolean[] visitedKinds;
+
+    /**
+     * Passes that visit the nodes of a kind, and their visits.
+     */
+    private static class Dispatch {
+
+        private final int[] passes;
+        private final List<BiFunction<JmmNode, SymbolTable, Void>> visits;
+
+        private Dispatch(int[] passes, List<BiFunction<JmmNode, SymbolTable, Void>> visits) {
+            this.passes = passes;
+            this.visits = visits;
+        }
+    }
+
+    public FusedAnalysis(List<? extends AnalysisPass> passes) {
+        this.passes = new ArrayList<>(passes);
+        this.reports = new ArrayList<>(passes.size());
+        this.failures = new ArrayList<>(passes.size());
+        for (int i = 0; i < passes.size(); i++) {
+            reports.add(List.of());
+            failures.add(null);
+        }
+        this.dispatches = new Dispatch[NUM_KINDS];
+        this.passNanos = new long[passes.size()];
+        this.passAllocatedBytes = new long[passes.size()];
+    }
+
+    /**
+     * Measures the wall time and the allocated bytes of the visits of each pass (see {@link #getPassNanos(int)}).
+     * Disabled by default, the measurement of each visit costs more than many of the visits.
+     *
+     * @param profiling
+     */
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * @param root
+     * @param table
+     */
+    public void analyze(JmmNode root, SymbolTable table) {
+        analyze(NodeIndex.build(root), table);
+    }
+
+    /**
+     * @param index index of the tree to analyse
+     * @param table
+     */
+    public void analyze(NodeIndex index, SymbolTable table) {
+        int from = 0;
+        for (int i = 0; i < index.getCount(Kind.METHOD_DECL); i++) {
+            int method = index.getId(Kind.METHOD_DECL, i);
+            if (method < from) {
+                continue;
+            }
+
+            visitRange(index, from, method, table);
+            visitMethod(index, method, table);
+            from = index.getEnd(method);
+        }
+        visitRange(index, from, index.size(), table);
+
+        finish(index.getNode(0), table, true);
+    }
+
+    /**
+     * Visits, in preorder, the nodes with ids from the first one to the one before the last, of the kinds that some pass
+     * visits.
+     *
+     * @param index
+     * @param from
+     * @param to
+     * @param table
+     */
+    void visitRange(NodeIndex index, int from, int to, SymbolTable table) {
+        var visited = getVisitedKinds(index);
+
+        for (int id = from; id < to; id++) {
+            var kind = index.getKind(id);
+            if (kind == null || visited[kind.ordinal()]) {
+                visitPasses(index.getNode(id), table);
+            }
+        }
+    }
+
+    /**
+     * Annotates the expressions of the method, and visits it and its descendants.
+     *
+     * @param index
+     * @param method id of the method declaration
+     * @param table
+     */
+    void visitMethod(NodeIndex index, int method, SymbolTable table) {
+        TypeAnnotation.annotate(index, method, table);
+        visitRange(index, method, index.getEnd(method), table);
+    }
+
+    /**
+     * Collects the reports of the passes, after the visits.
+     *
+     * @param root
+     * @param table
+     * @param runOthers if the passes that are not an {@link AnalysisVisitor} should be run
+     */
+    void finish(JmmNode root, SymbolTable table, boolean runOthers) {
+        for (int i = 0; i < passes.size(); i++) {
+            var pass = passes.get(i);
+
+            if (pass instanceof AnalysisVisitor visitor) {
+                reports.set(i, visitor.getReports());
+                continue;
+            }
+
+            if (!runOthers) {
+                continue;
+            }
+
+            long start = profiling ? System.nanoTime() : 0;
+            long allocatedStart = profiling ? Profiler.getAllocatedBytes() : 0;
+            try {
+                reports.set(i, pass.analyze(root, table));
+            } catch (Exception e) {
+                failures.set(i, e);
+            } finally {
+                if (profiling) {
+                    addMeasurement(i, start, allocatedStart);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the reports of the pass
+     */
+    public List<Report> getReports(int pass) {
+        return reports.get(pass);
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the exception that stopped the pass, or null if it analysed the whole tree
+     */
+    public Exception getFailure(int pass) {
+        return failures.get(pass);
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the wall time of the visits of the pass, if profiling
+     */
+    public long getPassNanos(int pass) {
+        return passNanos[pass];
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the bytes allocated by the visits of the pass if profiling, or -1 if the JVM doesn't measure them
+     */
+    public long getPassAllocatedBytes(int pass) {
+        return Profiler.getAllocatedBytes() < 0 ? -1 : passAllocatedBytes[pass];
+    }
+
+    private void visitPasses(JmmNode node, SymbolTable table) {
+        if (Kind.METHOD_DECL.check(node)) {
+            var methodContext = new MethodContext(node);
+            for (var pass : passes) {
+                if (pass instanceof AnalysisVisitor visitor) {
+                    visitor.setMethodContext(methodContext);
+                }
+            }
+        }
+
+        var dispatch = getDispatch(node);
+
+        for (int i = 0; i < dispatch.passes.length; i++) {
+            int pass = dispatch.passes[i];
+            if (failures.get(pass) != null) {
+                continue;
+            }
+
+            long start = profiling ? System.nanoTime() : 0;
+            long allocatedStart = profiling ? Profiler.getAllocatedBytes() : 0;
+            try {
+                dispatch.visits.get(i).apply(node, table);
+            } catch (Exception e) {
+                failures.set(pass, e);
+            } finally {
+                if (profiling) {
+                    addMeasurement(pass, start, allocatedStart);
+                }
+            }
+        }
+    }
+
+    private void addMeasurement(int pass, long start, long allocatedStart) {
+        passNanos[pass] += System.nanoTime() - start;
+        passAllocatedBytes[pass] += Profiler.getAllocatedBytes() - allocatedStart;
+    }
+
+    private boolean[] getVisitedKinds(NodeIndex index) {
+        if (visitedIndex == index) {
+            return visitedKinds;
+        }
+
+        // method declarations are always visited, for the method context
+        var kinds = new boolean[NUM_KINDS];
+        for (var kind : Kind.values()) {
+            if (index.getCount(kind) > 0) {
+                var sample = index.getNode(index.getId(kind, 0));
+                kinds[kind.ordinal()] = kind == Kind.METHOD_DECL || getDispatch(sample).passes.length > 0;
+            }
+        }
+
+        visitedIndex = index;
+        visitedKinds = kinds;
+
+        return visitedKinds;
+    }
+
+    private Dispatch getDispatch(JmmNode node) {
+        // all nodes of a kind built by the parsers have the same hierarchy, and so the same visits
+        var kind = node instanceof CompactJmmNode compactNode ? compactNode.getNodeKind() : null;
+        if (kind != null && dispatches[kind.ordinal()] != null) {
+            return dispatches[kind.ordinal()];
+        }
+
+        var visitPasses = new ArrayList<Integer>();
+        var visits = new ArrayList<BiFunction<JmmNode, SymbolTable, Void>>();
+        for (int i = 0; i < passes.size(); i++) {
+            if (passes.get(i) instanceof AnalysisVisitor visitor) {
+                var visit = visitor.getPassVisit(node);
+                if (visit != null) {
+                    visitPasses.add(i);
+                    visits.add(visit);
+                }
+            }
+        }
+
+        var dispatch = new Dispatch(visitPasses.stream().mapToInt(Integer::intValue).toArray(), visits);
+        if (kind != null) {
+            dispatches[kind.ordinal()] = dispatch;
+        }
+
+        return dispatch;
+    }
+}
@@ -8,33 +8,48 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.ast.NodeIndex;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.Profiler;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class JmmAnalysisImpl implements JmmAnalysis {
 
 
-    private final List<AnalysisPass> analysisPasses;
+    // Passes keep state while visiting (reports, method context...), so each analysis creates new instances.
+    // This way, the same JmmAnalysisImpl can be reused for several compilations.
+    private final List<Supplier<AnalysisPass>> analysisPasses;
+    private Profiler profiler;
 
     public JmmAnalysisImpl() {
 
-        this.analysisPasses = List.of(new UndeclaredVariable(),
-                new UndeclaredMethod(),
-                new InvalidBinaryOperation(),
-                new InvalidArrayAccess(),
-                new InvalidArrayIndex(),
-                new ExpressionCondition(),
-                new StaticMethods(),
-                new InvalidAssign(),
-                new InvalidThis(),
-                new InvalidParameters(),
-                new MethodCallParameters(),
-                new IncompatibleReturn(),
-                new RepeatedNames()
+        this.analysisPasses = List.of(UndeclaredVariable::new,
+                UndeclaredMethod::new,
+                InvalidBinaryOperation::new,
+                InvalidArrayAccess::new,
+                InvalidArrayIndex::new,
+                ExpressionCondition::new,
+                StaticMethods::new,
+                InvalidAssign::new,
+                InvalidThis::new,
+                InvalidParameters::new,
+                MethodCallParameters::new,
+                IncompatibleReturn::new,
+                RepeatedNames::new
         );
+        this.profiler = new Profiler(false);
+    }
 
+    /**
+     * Measures the symbol table construction and each analysis pass with the given profiler.
+     *
+     * @param profiler
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
     }
 
     @Override
@@ -42,27 +57,43 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         JmmNode rootNode = parserResult.getRootNode();
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        SymbolTable table = profiler.measure("symbolTable", () -> JmmSymbolTableBuilder.build(rootNode));
+
+        // The nodes of each kind, so that the passes only visit the kinds they added visits for
+        NodeIndex index = profiler.measure("index", () -> NodeIndex.build(rootNode));
 
         List<Report> reports = new ArrayList<>();
 
-        int i = 1;
-        // Visit all nodes in the AST
-        for (var analysisPass : analysisPasses) {
-            try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
-                i++;
-                if (!reports.isEmpty()) break;
-            } catch (Exception e) {
+        // All passes are visited in the same walk over the index, with the methods split between threads
+        // The type of each expression is annotated once, for the passes and for the OLLIR generation
+        // With profiling, the visits of each pass are measured as a stage inside the passes
+        var analysis = new ParallelAnalysis(analysisPasses);
+        analysis.setProfiling(profiler.isEnabled());
+        profiler.measure("passes", () -> {
+            analysis.analyze(index, table);
+            for (int i = 0; i < analysisPasses.size(); i++) {
+                profiler.record(analysis.getPassClass(i).getSimpleName(), analysis.getPassNanos(i), -1,
+                        analysis.getPassAllocatedBytes(i));
+            }
+            return null;
+        });
+
+        // The results are kept as if the passes ran one after the other, until the first one with reports
+        for (int i = 0; i < analysisPasses.size(); i++) {
+            var failure = analysis.getFailure(i);
+            if (failure != null) {
 
                 reports.add(Report.newError(Stage.SEMANTIC,
                         -1,
                         -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
+                        "Problem while executing analysis pass '" + analysis.getPassClass(i) + "'",
+                        failure)
                 );
+                continue;
             }
+
+            reports.addAll(analysis.getReports(i));
+            if (!reports.isEmpty()) break;
         }
 
         return new JmmSemanticsResult(parserResult, table, reports);
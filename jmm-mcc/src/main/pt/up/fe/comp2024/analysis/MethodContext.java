@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+/**
+ * Method whose nodes a pass is visiting. Passes read it with {@link AnalysisVisitor#getMethodContext()} instead of
+ * keeping the current method in a field of their own.
+ */
+public class MethodContext {
+
+    private final JmmNode method;
+    private final String name;
+    private final boolean isStatic;
+
+    public MethodContext(JmmNode method) {
+        this.method = method;
+        this.name = method.get("name");
+        this.isStatic = NodeUtils.getBooleanAttribute(method, "isStatic", "false");
+    }
+
+    public JmmNode getMethod() {
+        return method;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+}
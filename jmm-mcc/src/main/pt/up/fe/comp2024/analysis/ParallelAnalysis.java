@@ -0,0 +1,265 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeIndex;
+import pt.up.fe.comp2024.utils.Profiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs the analysis passes with the methods of the class split between the tasks of a {@link ForkJoinPool}.
+ * <p>
+ * The passes only depend on the symbol table and on the {@link MethodContext} of the method they visit, so the subtree
+ * of each method can be analysed on its own, a range of ids of the {@link NodeIndex} of the tree. The nodes outside
+ * methods are visited first, by one set of passes, and each task visits a range of methods with new instances of the
+ * passes, in a {@link FusedAnalysis}. There are a few tasks per thread of the pool, with a single thread all methods
+ * are visited by the calling thread.
+ * <p>
+ * The results are merged in the order of the nodes in the tree, so they are the same as the results of a
+ * {@link FusedAnalysis} of the whole tree, whatever the number of threads. For each pass, the first failure in that
+ * order is kept, and the ranges of methods after it are discarded, as the pass would have stopped there.
+ */
+public class ParallelAnalysis {
+
+    // fewest methods visited by a task, the passes are created again for each task
+    private static final int MIN_METHODS_PER_TASK = 8;
+
+    // tasks per thread of the pool, so that threads that finish early can take work from the others
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final List<? extends Supplier<? extends AnalysisPass>> passes;
+    private final ForkJoinPool pool;
+    private final List<List<Report>> reports;
+    private final List<Exception> failures;
+    private List<Class<? extends AnalysisPass>> passClasses;
+    private boolean profiling;
+    private long[] passNanos;
+    private long[] passAllocatedBytes;
+
+    public ParallelAnalysis(List<? extends Supplier<? extends AnalysisPass>> passes) {
+        this(passes, ForkJoinPool.commonPool());
+    }
+
+    public ParallelAnalysis(List<? extends Supplier<? extends AnalysisPass>> passes, ForkJoinPool pool) {
+        this.passes = passes;
+        this.pool = pool;
+        this.reports = new ArrayList<>(passes.size());
+        this.failures = new ArrayList<>(passes.size());
+    }
+
+    /**
+     * Measures the visits of each pass, summed over all threads, see {@link FusedAnalysis#setProfiling(boolean)}.
+     *
+     * @param profiling
+     */
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * Visits a range of methods, splitting it in half until it has at most the given number of methods.
+     */
+    private class MethodsTask extends RecursiveTask<List<FusedAnalysis>> {
+
+        private final NodeIndex index;
+        private final SymbolTable table;
+        private final int[] methods;
+        private final int from;
+        private final int to;
+        private final int methodsPerTask;
+
+        private MethodsTask(NodeIndex index, SymbolTable table, int[] methods, int from, int to, int methodsPerTask) {
+            this.index = index;
+            this.table = table;
+            this.methods = methods;
+            this.from = from;
+            this.to = to;
+            this.methodsPerTask = methodsPerTask;
+        }
+
+        @Override
+        protected List<FusedAnalysis> compute() {
+            if (to - from <= methodsPerTask) {
+                var analysis = newAnalysis();
+                for (int i = from; i < to; i++) {
+                    analysis.visitMethod(index, methods[i], table);
+                }
+                analysis.finish(index.getNode(0), table, false);
+
+                return List.of(analysis);
+            }
+
+            int middle = (from + to) >>> 1;
+            var left = new MethodsTask(index, table, methods, from, middle, methodsPerTask);
+            var right = new MethodsTask(index, table, methods, middle, to, methodsPerTask);
+            left.fork();
+
+            var results = new ArrayList<FusedAnalysis>();
+            var rightResults = right.compute();
+            results.addAll(left.join());
+            results.addAll(rightResults);
+
+            return results;
+        }
+    }
+
+    /**
+     * @param root
+     * @param table
+     */
+    public void analyze(JmmNode root, SymbolTable table) {
+        analyze(NodeIndex.build(root), table);
+    }
+
+    /**
+     * @param index index of the tree to analyse
+     * @param table
+     */
+    public void analyze(NodeIndex index, SymbolTable table) {
+        var methods = getMethods(index);
+
+        // the nodes outside methods come first in the tree, the passes that are not visitors run with them
+        var segments = new ArrayList<FusedAnalysis>();
+        var classPasses = newPasses();
+        passClasses = new ArrayList<>(classPasses.size());
+        for (var pass : classPasses) {
+            passClasses.add(pass.getClass());
+        }
+        var classAnalysis = newAnalysis(classPasses);
+        int from = 0;
+        for (int method : methods) {
+            classAnalysis.visitRange(index, from, method, table);
+            from = index.getEnd(method);
+        }
+        classAnalysis.visitRange(index, from, index.size(), table);
+        classAnalysis.finish(index.getNode(0), table, true);
+        segments.add(classAnalysis);
+
+        if (methods.length > 0) {
+            int threads = pool.getParallelism();
+            int methodsPerTask = threads == 1 ? methods.length
+                    : Math.max(MIN_METHODS_PER_TASK, methods.length / (threads * TASKS_PER_THREAD));
+            var task = new MethodsTask(index, table, methods, 0, methods.length, methodsPerTask);
+
+            // a single task is not worth the handoff to the pool
+            segments.addAll(methods.length <= methodsPerTask ? task.compute() : pool.invoke(task));
+        }
+
+        merge(segments);
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the class of the instances of the pass that ran in the last analysis
+     */
+    public Class<? extends AnalysisPass> getPassClass(int pass) {
+        return passClasses.get(pass);
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the reports of the pass
+     */
+    public List<Report> getReports(int pass) {
+        return reports.get(pass);
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the exception that stopped the pass, or null if it analysed the whole tree
+     */
+    public Exception getFailure(int pass) {
+        return failures.get(pass);
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the wall time of the visits of the pass in all threads, if profiling
+     */
+    public long getPassNanos(int pass) {
+        return passNanos[pass];
+    }
+
+    /**
+     * @param pass index of the pass
+     * @return the bytes allocated by the visits of the pass in all threads if profiling, or -1 if the JVM doesn't
+     * measure them
+     */
+    public long getPassAllocatedBytes(int pass) {
+        return Profiler.getAllocatedBytes() < 0 ? -1 : passAllocatedBytes[pass];
+    }
+
+    private FusedAnalysis newAnalysis() {
+        return newAnalysis(newPasses());
+    }
+
+    private FusedAnalysis newAnalysis(List<AnalysisPass> passes) {
+        var analysis = new FusedAnalysis(passes);
+        analysis.setProfiling(profiling);
+
+        return analysis;
+    }
+
+    private List<AnalysisPass> newPasses() {
+        var instances = new ArrayList<AnalysisPass>(passes.size());
+        for (var pass : passes) {
+            instances.add(pass.get());
+        }
+
+        return instances;
+    }
+
+    /**
+     * @return the ids of the method declarations that are not inside other methods
+     */
+    private static int[] getMethods(NodeIndex index) {
+        var methods = new int[index.getCount(Kind.METHOD_DECL)];
+        int numMethods = 0;
+        int end = 0;
+        for (int i = 0; i < methods.length; i++) {
+            int method = index.getId(Kind.METHOD_DECL, i);
+            if (method >= end) {
+                methods[numMethods++] = method;
+                end = index.getEnd(method);
+            }
+        }
+
+        return Arrays.copyOf(methods, numMethods);
+    }
+
+    private void merge(List<FusedAnalysis> segments) {
+        reports.clear();
+        failures.clear();
+        passNanos = new long[passes.size()];
+        passAllocatedBytes = new long[passes.size()];
+
+        for (int i = 0; i < passes.size(); i++) {
+            var passReports = new ArrayList<Report>();
+            Exception failure = null;
+
+            // the segments after a failure also spent their time visiting
+            for (var segment : segments) {
+                passNanos[i] += segment.getPassNanos(i);
+                passAllocatedBytes[i] += segment.getPassAllocatedBytes(i);
+            }
+            for (var segment : segments) {
+                passReports.addAll(segment.getReports(i));
+                failure = segment.getFailure(i);
+                if (failure != null) {
+                    break;
+                }
+            }
+
+            reports.add(passReports);
+            failures.add(failure);
+        }
+    }
+}
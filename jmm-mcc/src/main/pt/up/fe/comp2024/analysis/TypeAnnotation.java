@@ -0,0 +1,152 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeIndex;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Computes the type of each expression once and keeps it in the node (see
+ * {@link TypeUtils#getAnnotatedType(JmmNode)}). The analysis passes and the OLLIR generators read it instead of
+ * inferring the type again.
+ * <p>
+ * The type of an expression only depends on the node and on the symbol table (operator, name, declaration), not on
+ * the types of its operands, so the expressions can be annotated in any order. {@link FusedAnalysis} annotates the
+ * expressions of each method before its visits, kind by kind from the {@link NodeIndex} of the tree, without a
+ * traversal of its own. Expressions that are not annotated yet are annotated when their type is first asked for, with
+ * {@link #getType(JmmNode, SymbolTable, String)}.
+ * <p>
+ * The annotations are replaced at the start of each analysis of a method, not kept from a previous one: the
+ * incremental parser reuses the unchanged nodes of the tree, and a change to a declaration changes the type of
+ * expressions that were not parsed again.
+ * <p>
+ * Only nodes built by the parsers can be annotated, the type of other nodes is inferred each time.
+ */
+public class TypeAnnotation {
+
+    private static final Set<Kind> EXPRESSIONS = EnumSet.of(Kind.PARANTHESES, Kind.NOT_OP, Kind.LENGTH,
+            Kind.METHOD_CALL, Kind.NEW_OBJECT, Kind.NEW_ARRAY, Kind.ARRAY_ACCESS, Kind.BINARY_EXPR, Kind.ARRAY_CALL,
+            Kind.CONST, Kind.VAR_REF_EXPR, Kind.THIS_EXPR);
+
+    private TypeAnnotation() {
+    }
+
+    /**
+     * Annotates the expressions of all methods of the class, for trees that are not analysed.
+     *
+     * @param root
+     * @param table
+     */
+    public static void annotate(JmmNode root, SymbolTable table) {
+        var index = NodeIndex.build(root);
+        for (int i = 0; i < index.getCount(Kind.METHOD_DECL); i++) {
+            annotate(index, index.getId(Kind.METHOD_DECL, i), table);
+        }
+    }
+
+    /**
+     * Annotates the expressions of a method.
+     *
+     * @param index
+     * @param method id of the method declaration
+     * @param table
+     */
+    public static void annotate(NodeIndex index, int method, SymbolTable table) {
+        String methodName = index.getNode(method).get("name");
+        int end = index.getEnd(method);
+
+        for (var kind : EXPRESSIONS) {
+            for (int i = index.lowerBound(kind, method); i < index.getCount(kind); i++) {
+                int id = index.getId(kind, i);
+                if (id >= end) {
+                    break;
+                }
+
+                annotate(index.getNode(id), table, methodName);
+            }
+        }
+    }
+
+    /**
+     * Annotates the node if it is an expression, replacing the type of a previous annotation.
+     *
+     * @param node
+     * @param table
+     * @param currentMethod the method that contains the node
+     */
+    public static void annotate(JmmNode node, SymbolTable table, String currentMethod) {
+        if (node instanceof CompactJmmNode compactNode && EXPRESSIONS.contains(compactNode.getNodeKind())) {
+            compactNode.setExprType(inferType(node, table, currentMethod));
+        }
+    }
+
+    /**
+     * @param expr
+     * @param table
+     * @param currentMethod the method that contains the expression
+     * @return the type of the expression, computed the first time it is asked for
+     */
+    public static Type getType(JmmNode expr, SymbolTable table, String currentMethod) {
+        var type = TypeUtils.getAnnotatedType(expr);
+        if (type != null) {
+            return type;
+        }
+
+        type = inferType(expr, table, currentMethod);
+        // without the method, only the fields are visible
+        if (currentMethod != null && expr instanceof CompactJmmNode node) {
+            node.setExprType(type);
+        }
+
+        return type;
+    }
+
+    /**
+     * @return the type of the expression, or {@link TypeUtils#unknownType()} if it can't be known (e.g. names that
+     * are not variables, calls to methods of other classes)
+     */
+    private static Type inferType(JmmNode expr, SymbolTable table, String currentMethod) {
+        var kind = Kind.of(expr);
+
+        return switch (kind) {
+            case VAR_REF_EXPR -> TypeUtils.resolve(table, currentMethod, expr.get("name"))
+                    .map(ResolvedSymbol::getType)
+                    .orElse(TypeUtils.unknownType());
+            case CONST -> expr.get("name").equals("true") || expr.get("name").equals("false")
+                    ? TypeUtils.booleanType() : TypeUtils.intType();
+            case BINARY_EXPR -> {
+                var operator = expr.get("name");
+                yield AnalysisVisitor.ARITHMETIC_OPERATORS.contains(operator) && !operator.equals("<")
+                        ? TypeUtils.intType() : TypeUtils.booleanType();
+            }
+            case METHOD_CALL -> {
+                var returnType = getReturnType(table, expr.get("name"));
+                yield returnType != null ? returnType : TypeUtils.unknownType();
+            }
+            case NEW_OBJECT -> TypeUtils.getType(expr.getChild(0).get("name"), false, table);
+            case ARRAY_ACCESS, LENGTH -> TypeUtils.intType();
+            case NEW_ARRAY, ARRAY_CALL -> TypeUtils.intArrayType();
+            default -> TypeUtils.unknownType();
+        };
+    }
+
+    /**
+     * @return the return type of a method of the class, or null if the class has no method with that name
+     */
+    private static Type getReturnType(SymbolTable table, String method) {
+        // tables built by the builder return null for other methods, without going through the list of methods
+        if (table instanceof JmmSymbolTable) {
+            return table.getReturnType(method);
+        }
+
+        return table.getMethods().contains(method) ? table.getReturnType(method) : null;
+    }
+}
@@ -7,23 +7,17 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
 
 public class ExpressionCondition extends AnalysisVisitor {
 
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.IF_STMT, this::visitCondition);
         addVisit(Kind.WHILE_STMT, this::visitCondition);
     }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
-
     private Void visitCondition(JmmNode stmt, SymbolTable table) {
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
@@ -49,25 +43,9 @@ public class ExpressionCondition extends AnalysisVisitor {
 
         // If it is a variable
         if (condition.getKind().equals(Kind.VAR_REF_EXPR.toString())) {
-            for (var symbol : table.getFields()) {
-                if (symbol.getName().equals(condition.get("name")) && symbol.getType().getName().equals("boolean")
-                        && !symbol.getType().isArray()) {
-                    return null;
-                }
-            }
-
-            for (var symbol : table.getParameters(currentMethod)) {
-                if (symbol.getName().equals(condition.get("name")) && symbol.getType().getName().equals("boolean")
-                        && !symbol.getType().isArray()) {
-                    return null;
-                }
-            }
-
-            for (var symbol : table.getLocalVariables(currentMethod)) {
-                if (symbol.getName().equals(condition.get("name")) && symbol.getType().getName().equals("boolean")
-                        && !symbol.getType().isArray()) {
-                    return null;
-                }
+            var type = getVariableType(condition, table, getCurrentMethod());
+            if (TypeUtils.isSameType(type, TypeUtils.booleanType())) {
+                return null;
             }
         }
 
@@ -7,10 +7,10 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
 
 public class IncompatibleReturn extends AnalysisVisitor {
 
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
@@ -20,9 +20,8 @@ public class IncompatibleReturn extends AnalysisVisitor {
 
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
 
-        if (method.getDescendants(Kind.RET_STMT).isEmpty() && !currentMethod.equals("main")) {
+        if (NodeUtils.getDescendants(method, Kind.RET_STMT).isEmpty() && !getCurrentMethod().equals("main")) {
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     NodeUtils.getLine(method),
@@ -32,9 +31,9 @@ public class IncompatibleReturn extends AnalysisVisitor {
             );
         }
 
-        if (currentMethod.equals("main")) {
+        if (getCurrentMethod().equals("main")) {
             if (method.getChild(1).getChild(0).get("name").equals("String")) {
-                if (method.getChild(1).getChild(0).get("isArray").equals("true")) {
+                if (NodeUtils.getBooleanAttribute(method.getChild(1).getChild(0), "isArray", "false")) {
                     return null;
                 }
             }
@@ -46,7 +45,7 @@ public class IncompatibleReturn extends AnalysisVisitor {
                     null)
             );
 
-            if (!method.getDescendants(Kind.THIS).isEmpty()) {
+            if (!NodeUtils.getDescendants(method, Kind.THIS).isEmpty()) {
                 addReport(Report.newError(
                         Stage.SEMANTIC,
                         NodeUtils.getLine(method),
@@ -83,13 +82,11 @@ public class IncompatibleReturn extends AnalysisVisitor {
         }
 
         var exprChild = assignExpr.getChild(0);
-        var returnTypeActual = getVariableType(exprChild, table, currentMethod);
+        var returnTypeActual = getVariableType(exprChild, table, getCurrentMethod());
 
-        var returnTypeExpected = table.getReturnType(currentMethod);
+        var returnTypeExpected = table.getReturnType(getCurrentMethod());
 
-        if (returnTypeExpected.getName().equals(returnTypeActual.getName())) {
-            if (returnTypeExpected.isArray() == returnTypeActual.isArray()) return null;
-        }
+        if (TypeUtils.isSameType(returnTypeExpected, returnTypeActual)) return null;
 
         var message = "Return types are not compatible";
 
@@ -14,51 +14,24 @@ import java.util.List;
 public class InvalidArrayAccess extends AnalysisVisitor {
 
     public static final List<String> ARITHMETIC_OPERATORS = Arrays.asList("*", "/", "-", "+");
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.ARRAY_ACCESS, this::visitArrayAccess);
     }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
-
     private Void visitArrayAccess(JmmNode arrayExpr, SymbolTable table) {
 
-        //SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
+        //SpecsCheck.checkNotNull(getCurrentMethod(), () -> "Expected current method to be set");
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var arrayNode = arrayExpr.getChild(0);
 
         var arrayAccess = arrayExpr.getChild(1);
 
-        for (var param : table.getFields()) {
-            if (param.getName().equals(arrayNode.get("name"))) {
-                if (param.getType().isArray()) {
-                    return null;
-                }
-            }
-        }
-
-        for (var param : table.getParameters(currentMethod)) {
-            if (param.getName().equals(arrayNode.get("name"))) {
-                if (param.getType().isArray()) {
-                    return null;
-                }
-            }
-        }
-
-        for (var param : table.getLocalVariables(currentMethod)) {
-            if (param.getName().equals(arrayNode.get("name"))) {
-                if (param.getType().isArray()) {
-                    return null;
-                }
-            }
-
+        var symbol = resolve(table, getCurrentMethod(), arrayNode.get("name"));
+        if (symbol.isPresent() && symbol.get().getType().isArray()) {
+            return null;
         }
 
         var message = String.format("'%s' is not an array", arrayNode.get("name"));
@@ -14,28 +14,21 @@ import java.util.List;
 public class InvalidArrayIndex extends AnalysisVisitor {
 
     public static final List<String> ARITHMETIC_OPERATORS = Arrays.asList("*", "/", "-", "+");
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.ARRAY_ACCESS, this::visitArrayAccess);
     }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
-
     private Void visitArrayAccess(JmmNode arrayExpr, SymbolTable table) {
 
-        //SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
+        //SpecsCheck.checkNotNull(getCurrentMethod(), () -> "Expected current method to be set");
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
 
         var arrayAccess = arrayExpr.getChild(1);
 
-        var type = getVariableType(arrayAccess, table, currentMethod);
+        var type = getVariableType(arrayAccess, table, getCurrentMethod());
 
         if (!type.isArray() && type.getName().equals("int")) {
             return null;
@@ -8,6 +8,7 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,49 +20,30 @@ public class InvalidAssign extends AnalysisVisitor {
     public static final List<String> ARITHMETIC_OPERATORS = Arrays.asList("*", "/", "-", "+");
 
     public static final List<String> BOOLEAN_OPERATORS = Arrays.asList("||", "&&", "<", "!");
-    public List<String> imports = new ArrayList<String>();
-    private String currentMethod;
-    private String superClass;
-    private boolean isExtended = false;
+    private List<String> imports;
 
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.ASSIGN_STMT, this::assignVariable);
-        addVisit(Kind.CLASS_DECL, this::visitClass);
-        addVisit(Kind.IMPORT_DECLARATION, this::visitImport);
     }
 
-    private Void visitImport(JmmNode declaration, SymbolTable table) {
-
-        String lib = declaration.get("lib");
-
-        int lastIndex = lib.lastIndexOf(".");
-        if (lastIndex == -1) {
-            imports.add(lib.substring(1, lib.length() - 1));
-            return null; // If no period found, return the original string
-        } else {
-            imports.add(lib.substring(lastIndex + 1)); // Return substring from last period to end
-            return null;
+    // the imports and the super class come from the table, the passes only visit the nodes of a method
+    private List<String> getImports(SymbolTable table) {
+        if (imports != null) {
+            return imports;
         }
-    }
-
-
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
 
-    private Void visitClass(JmmNode classDecl, SymbolTable table) {
-        try {
-            if (classDecl.get("superClass") != null) {
-                isExtended = true;
-                superClass = classDecl.get("superClass");
+        imports = new ArrayList<>();
+        for (var lib : table.getImports()) {
+            int lastIndex = lib.lastIndexOf(".");
+            if (lastIndex == -1) {
+                imports.add(lib.substring(1, lib.length() - 1));
+            } else {
+                imports.add(lib.substring(lastIndex + 1)); // Return substring from last period to end
             }
-            return null;
-        } catch (NullPointerException e) {
-            return null;
         }
+
+        return imports;
     }
 
     private Void assignVariable(JmmNode assignExpr, SymbolTable table) {
@@ -70,7 +52,7 @@ public class InvalidAssign extends AnalysisVisitor {
         var assignee = assignExpr.getChild(1);
 
         if (assigned.getKind().equals("ArrayAccess")) {
-            var type = getVariableType(assignee, table, currentMethod);
+            var type = getVariableType(assignee, table, getCurrentMethod());
             if (Objects.equals(type.getName(), "int")) {
                 return null;
             } else {
@@ -96,14 +78,14 @@ public class InvalidAssign extends AnalysisVisitor {
             return null;
         }
 
-        if (getVariableType(assigned, table, currentMethod).isArray()) {
+        if (getVariableType(assigned, table, getCurrentMethod()).isArray()) {
             if (assignee.getKind().equals((Kind.ARRAY_CALL.toString())))
                 // Both arrays, return - Also check if it is an array of the same type
                 // Must loop to check all the elements of the array must be integers
                 //var nodeChildren = assignee.getChildren();
                 for (var node : assignee.getChildren()) {
                     boolean isValid = true;
-                    if (!getVariableType(node, table, currentMethod).getName().equals("int")) {
+                    if (!getVariableType(node, table, getCurrentMethod()).getName().equals("int")) {
                         var message = String.format("'%s' type do not correspond to the correct type", assigned.get("name"));
 
 
@@ -120,16 +102,15 @@ public class InvalidAssign extends AnalysisVisitor {
             return null;
         }
 
+        Type assignedType = getVariableType(assigned, table, getCurrentMethod());
+        Type assigneeType = getVariableType(assignee, table, getCurrentMethod());
+
         // If they are from the Same type
-        if (getVariableType(assigned, table, currentMethod).getName().equals(getVariableType(assignee, table, currentMethod).getName())
-                && getVariableType(assigned, table, currentMethod).isArray() == getVariableType(assignee, table, currentMethod).isArray()) {
+        if (TypeUtils.isSameType(assignedType, assigneeType)) {
             // Same type
             return null;
         }
 
-        Type assignedType = getVariableType(assigned, table, currentMethod);
-        Type assigneeType = getVariableType(assignee, table, currentMethod);
-
         // Check if a class extends the other
 
         if (assignee.getKind().equals("ArrayCall")) {
@@ -150,12 +131,14 @@ public class InvalidAssign extends AnalysisVisitor {
 
         // imported class
         if (assigneeType.getName().isEmpty()) return null;
-        if (isExtended) {
+        var superClass = table.getSuper();
+        if (superClass != null && !superClass.isEmpty()) {
             if (superClass.equals(assignedType.getName())) {
                 return null;
             }
         }
 
+        var imports = getImports(table);
         if (imports.contains(assigneeType.getName()) && imports.contains(assignedType.getName())) {
             return null;
         }
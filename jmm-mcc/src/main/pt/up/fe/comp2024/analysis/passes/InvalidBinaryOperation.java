@@ -10,17 +10,10 @@ import pt.up.fe.comp2024.ast.NodeUtils;
 
 public class InvalidBinaryOperation extends AnalysisVisitor {
 
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
         addVisit(Kind.BINARY_EXPR, this::visitBinaryExpr);
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
-    }
-
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
     }
 
     private Void visitBinaryExpr(JmmNode binaryRefExpr, SymbolTable table) {
@@ -28,8 +21,8 @@ public class InvalidBinaryOperation extends AnalysisVisitor {
         var operator = binaryRefExpr.getChild(1);
         var leftOperand = binaryRefExpr.getChild(0);
         var rightOperand = binaryRefExpr.getChild(1);
-        var leftType = getVariableType(leftOperand, table, currentMethod);
-        var rightType = getVariableType(rightOperand, table, currentMethod);
+        var leftType = getVariableType(leftOperand, table, getCurrentMethod());
+        var rightType = getVariableType(rightOperand, table, getCurrentMethod());
 
         if (leftType.getName().equals(rightType.getName())) {
             if (!leftType.isArray() && !rightType.isArray()) {
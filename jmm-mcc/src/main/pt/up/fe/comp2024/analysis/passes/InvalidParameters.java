@@ -12,7 +12,6 @@ import pt.up.fe.specs.util.SpecsCheck;
 
 public class InvalidParameters extends AnalysisVisitor {
 
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
@@ -20,13 +19,12 @@ public class InvalidParameters extends AnalysisVisitor {
     }
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
         var params = method.getChildren(Kind.PARAM);
         var nParams = params.size();
 
         for (int i = 0; i < nParams - 1; i++) {
             var param = params.get(i);
-            if (param.get("isVarArg").equals("true")) {
+            if (NodeUtils.getBooleanAttribute(param, "isVarArg", "false")) {
                 var message = "Varargs can only be the last parameter";
                 addReport(Report.newError(
                         Stage.SEMANTIC,
@@ -43,8 +41,8 @@ public class InvalidParameters extends AnalysisVisitor {
 
     private Void visitMethodCallExpr(JmmNode methodRefExpr, SymbolTable table) {
 
-        var className = methodRefExpr.getAncestor(Kind.CLASS_DECL).get().get("name");
-        SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
+        var className = table.getClassName();
+        SpecsCheck.checkNotNull(getCurrentMethod(), () -> "Expected current method to be set");
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var methodRefName = methodRefExpr.get("name");
@@ -57,9 +55,9 @@ public class InvalidParameters extends AnalysisVisitor {
 
         try {
             var object = methodRefExpr.getChild(0);
-            var debug = getVariableType(object, table, currentMethod).getName();
-            if (!getVariableType(object, table, currentMethod).getName().equals("int") && !getVariableType(object, table, currentMethod).getName().equals("boolean")
-                    && !getVariableType(object, table, currentMethod).getName().equals(className)) {
+            var debug = getVariableType(object, table, getCurrentMethod()).getName();
+            if (!getVariableType(object, table, getCurrentMethod()).getName().equals("int") && !getVariableType(object, table, getCurrentMethod()).getName().equals("boolean")
+                    && !getVariableType(object, table, getCurrentMethod()).getName().equals(className)) {
                 // It is an object, assume method exists
                 return null;
             }
@@ -20,8 +20,8 @@ public class InvalidThis extends AnalysisVisitor {
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
 
-        var method = stmt.getAncestor(Kind.METHOD_DECL);
-        if (method.get().get("name").equals("main")) {
+        var method = getMethodContext();
+        if (method.getName().equals("main")) {
             var message = "This keyword cannot be used in main method";
             addReport(Report.newError(
                     Stage.SEMANTIC,
@@ -32,7 +32,7 @@ public class InvalidThis extends AnalysisVisitor {
             );
         }
 
-        if (method.isPresent() && method.get().get("isStatic").equals("true")) {
+        if (method.isStatic()) {
             var message = "This keyword cannot be used in static methods";
             addReport(Report.newError(
                     Stage.SEMANTIC,
@@ -15,24 +15,17 @@ import java.util.List;
 
 public class MethodCallParameters extends AnalysisVisitor {
 
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.METHOD_CALL, this::visitMethodCallExpr);
     }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
-
     private Void visitMethodCallExpr(JmmNode methodRefExpr, SymbolTable table) {
 
-        var className = methodRefExpr.getAncestor(Kind.CLASS_DECL).get().get("name");
+        var className = table.getClassName();
 
-        SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
+        SpecsCheck.checkNotNull(getCurrentMethod(), () -> "Expected current method to be set");
 
         var methodRefName = methodRefExpr.get("name");
 
@@ -57,7 +50,7 @@ public class MethodCallParameters extends AnalysisVisitor {
 
             var objectOrStaticValue = methodRefExpr.getChild(0);
 
-            var type = getVariableType(objectOrStaticValue, table, currentMethod);
+            var type = getVariableType(objectOrStaticValue, table, getCurrentMethod());
 
             if (type.getName().isEmpty()) {
                 var name = objectOrStaticValue.get("name").substring(1, type.getName().length() - 2);
@@ -114,7 +107,7 @@ public class MethodCallParameters extends AnalysisVisitor {
 
         for (int i = 0; i < methodParams.size(); i++) {
             var expected = methodParams.get(i).getType();
-            var actual = getVariableType(callParams.get(i), table, currentMethod);
+            var actual = getVariableType(callParams.get(i), table, getCurrentMethod());
             if (expected.getName().equals(actual.getName())) {
                 if (expected.isArray() == actual.isArray()) {
                     // same type, must return;
@@ -8,112 +8,91 @@ import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks that imports, fields, methods, and the parameters and locals of each method are not declared more than once.
+ * <p>
+ * Each declaration whose name was already declared before it is reported, at its own position.
+ */
 public class RepeatedNames extends AnalysisVisitor {
 
     @Override
     public void buildVisitor() {
         addVisit(Kind.PROGRAM, this::visitProgram);
+        addVisit(Kind.CLASS_DECL, this::visitClassDecl);
+        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
     }
 
-
     private Void visitProgram(JmmNode program, SymbolTable table) {
+        var imports = new HashSet<String>();
 
-        // field validation;
-
-        var fields = table.getFields();
-
-        for (int i = 0; i < fields.size(); i++) {
-            for (int j = i + 1; j < fields.size(); j++) {
-                if (fields.get(i).getName().equals(fields.get(j).getName())) {
-
-                    var message = String.format("Variable '%s' declared more than 1 time", fields.get(i).getName());
-
-                    addReport(Report.newError(
-                            Stage.SEMANTIC,
-                            NodeUtils.getLine(program),
-                            NodeUtils.getColumn(program),
-                            message,
-                            null)
-                    );
-                }
+        for (int i = 0; i < program.getNumChildren(); i++) {
+            var child = program.getJmmChild(i);
+            if (Kind.IMPORT_DECLARATION.check(child)) {
+                checkRepeated(imports, child, child.get("lib"), "Import");
             }
         }
 
-        var methods = table.getMethods();
-        for (var i = 0; i < methods.size(); i++) {
-            for (var j = i + 1; j < methods.size(); j++) {
-                if (methods.get(i).equals(methods.get(j))) {
-                    var message = String.format("Method '%s' declared more than 1 time", methods.get(i));
-
-                    addReport(Report.newError(
-                            Stage.SEMANTIC,
-                            NodeUtils.getLine(program),
-                            NodeUtils.getColumn(program),
-                            message,
-                            null)
-                    );
-                }
-            }
-
-            var method = methods.get(i);
-
-            var locals = table.getLocalVariables(method);
-
-            for (var j = 0; j < locals.size(); j++) {
-                for (var k = j + 1; k < locals.size(); k++) {
-                    if (locals.get(j).getName().equals(locals.get(k).getName())) {
-                        var message = String.format("Local Variable '%s' declared more than 1 time", locals.get(i).getName());
+        return null;
+    }
 
-                        addReport(Report.newError(
-                                Stage.SEMANTIC,
-                                NodeUtils.getLine(program),
-                                NodeUtils.getColumn(program),
-                                message,
-                                null)
-                        );
-                    }
-                }
-            }
+    private Void visitClassDecl(JmmNode classDecl, SymbolTable table) {
+        var fields = new HashSet<String>();
+        var methods = new HashSet<String>();
 
-            var params = table.getParameters(method);
-
-            for (var j = 0; j < params.size(); j++) {
-                for (var k = j + 1; k < params.size(); k++) {
-                    if (params.get(j).getName().equals(params.get(k).getName())) {
-                        var message = String.format("Parameter '%s' declared more than 1 time", params.get(i).getName());
-
-                        addReport(Report.newError(
-                                Stage.SEMANTIC,
-                                NodeUtils.getLine(program),
-                                NodeUtils.getColumn(program),
-                                message,
-                                null)
-                        );
-                    }
+        for (int i = 0; i < classDecl.getNumChildren(); i++) {
+            var child = classDecl.getJmmChild(i);
+            switch (Kind.of(child)) {
+                case VAR_DECL -> checkRepeated(fields, child, child.get("name"), "Variable");
+                case METHOD_DECL -> checkRepeated(methods, child, child.get("name"), "Method");
+                default -> {
                 }
             }
         }
 
-        var imports = table.getImports();
+        return null;
+    }
 
-        for (int i = 0; i < imports.size(); i++) {
-            for (int j = i + 1; j < imports.size(); j++) {
-                if (imports.get(i).equals(imports.get(j))) {
-                    var message = String.format("Import '%s' declared more than 1 time", imports.get(i));
+    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
+        var params = new HashSet<String>();
+        var locals = new HashSet<String>();
 
-                    addReport(Report.newError(
-                            Stage.SEMANTIC,
-                            NodeUtils.getLine(program),
-                            NodeUtils.getColumn(program),
-                            message,
-                            null)
-                    );
+        for (int i = 0; i < method.getNumChildren(); i++) {
+            var child = method.getJmmChild(i);
+            switch (Kind.of(child)) {
+                case PARAM -> checkRepeated(params, child, child.get("name"), "Parameter");
+                case VAR_DECL -> checkRepeated(locals, child, child.get("name"), "Local Variable");
+                default -> {
                 }
             }
         }
 
         return null;
+    }
+
+    /**
+     * Reports the declaration if the name was already declared.
+     *
+     * @param names       names declared so far, the name is added to them
+     * @param declaration
+     * @param name
+     * @param description what is declared, for the message
+     */
+    private void checkRepeated(Set<String> names, JmmNode declaration, String name, String description) {
+        if (names.add(name)) {
+            return;
+        }
 
+        var message = String.format("%s '%s' declared more than 1 time", description, name);
+
+        addReport(Report.newError(
+                Stage.SEMANTIC,
+                NodeUtils.getLine(declaration),
+                NodeUtils.getColumn(declaration),
+                message,
+                null)
+        );
     }
 }
-
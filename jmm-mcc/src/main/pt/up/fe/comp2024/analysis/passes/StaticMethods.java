@@ -12,59 +12,41 @@ import pt.up.fe.specs.util.SpecsCheck;
 
 public class StaticMethods extends AnalysisVisitor {
 
-    private String currentMethod;
-
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.THIS, this::visitThis);
         addVisit(Kind.VAR_REF_EXPR, this::visitVar);
     }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
-
     private Void visitVar(JmmNode varExpr, SymbolTable table) {
-        var temp = varExpr.getAncestor(Kind.METHOD_DECL).get();
-        try {
-            if (temp.get("isStatic").equals("false")) {
-                return null;
-            }
-        } catch (NullPointerException e) {
+        // the method is visited before its variables, no need to look for the ancestor of each one
+        var method = getMethodContext();
+        if (method != null && !method.isStatic()) {
+            return null;
         }
 
-        for (var field : table.getFields()) {
-            if (field.getName().equals(varExpr.get("name"))) {
-
-                for (var variable : table.getLocalVariables(currentMethod)) {
-                    if (variable.getName().equals(varExpr.get("name"))) return null;
-                }
-                var message = "Can't use fields  on static methods";
-                addReport(Report.newError(
-                        Stage.SEMANTIC,
-                        NodeUtils.getLine(varExpr),
-                        NodeUtils.getColumn(varExpr),
-                        message,
-                        null)
-                );
-
-            }
+        // a parameter or local with the same name hides the field
+        var symbol = resolve(table, getCurrentMethod(), varExpr.get("name"));
+        if (symbol.isPresent() && symbol.get().isField()) {
+            var message = "Can't use fields  on static methods";
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(varExpr),
+                    NodeUtils.getColumn(varExpr),
+                    message,
+                    null)
+            );
         }
         return null;
     }
 
     private Void visitThis(JmmNode thisExpr, SymbolTable table) {
 
-        var temp = thisExpr.getAncestor(Kind.METHOD_DECL).get();
-        SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
+        var method = getMethodContext();
+        SpecsCheck.checkNotNull(method, () -> "Expected current method to be set");
 
-        try {
-            if (temp.get("isStatic").equals("false")) {
-                return null;
-            }
-        } catch (NullPointerException e) {
+        if (!method.isStatic()) {
+            return null;
         }
 
         // Create error report
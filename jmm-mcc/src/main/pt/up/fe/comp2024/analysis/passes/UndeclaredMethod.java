@@ -11,29 +11,22 @@ import pt.up.fe.specs.util.SpecsCheck;
 
 public class UndeclaredMethod extends AnalysisVisitor {
 
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.METHOD_CALL, this::visitMethodCallExpr);
     }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
-
     private Void visitMethodCallExpr(JmmNode methodRefExpr, SymbolTable table) {
 
-        var className = methodRefExpr.getAncestor(Kind.CLASS_DECL).get().get("name");
+        var className = table.getClassName();
 
-        SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
+        SpecsCheck.checkNotNull(getCurrentMethod(), () -> "Expected current method to be set");
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var methodRefName = methodRefExpr.get("name");
 
-        if (currentMethod.equals("main")) {
+        if (getCurrentMethod().equals("main")) {
             if (methodRefExpr.get("is_this").equals("true")) {
                 addReport(Report.newError(
                         Stage.SEMANTIC,
@@ -53,9 +46,9 @@ public class UndeclaredMethod extends AnalysisVisitor {
 
         try {
             var object = methodRefExpr.getChild(0);
-            var debug = getVariableType(object, table, currentMethod).getName();
-            if (!getVariableType(object, table, currentMethod).getName().equals("int") && !getVariableType(object, table, currentMethod).getName().equals("boolean")
-                    && !getVariableType(object, table, currentMethod).getName().equals(className)) {
+            var debug = getVariableType(object, table, getCurrentMethod()).getName();
+            if (!getVariableType(object, table, getCurrentMethod()).getName().equals("int") && !getVariableType(object, table, getCurrentMethod()).getName().equals("boolean")
+                    && !getVariableType(object, table, getCurrentMethod()).getName().equals(className)) {
                 // It is an object, assume method exists
                 return null;
             }
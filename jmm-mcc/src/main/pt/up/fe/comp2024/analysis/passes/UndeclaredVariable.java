@@ -16,41 +16,21 @@ import pt.up.fe.specs.util.SpecsCheck;
  */
 public class UndeclaredVariable extends AnalysisVisitor {
 
-    private String currentMethod;
 
     @Override
     public void buildVisitor() {
-        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.VAR_REF_EXPR, this::visitVarRefExpr);
     }
 
-    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
-        currentMethod = method.get("name");
-        return null;
-    }
-
     private Void visitVarRefExpr(JmmNode varRefExpr, SymbolTable table) {
 
-        SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
+        SpecsCheck.checkNotNull(getCurrentMethod(), () -> "Expected current method to be set");
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var varRefName = varRefExpr.get("name");
 
-        // Var is a field, return
-        if (table.getFields().stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
-            return null;
-        }
-
-        // Var is a parameter, return
-        if (table.getParameters(currentMethod).stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
-            return null;
-        }
-
-        // Var is a declared variable, return
-        if (table.getLocalVariables(currentMethod).stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varRefName))) {
+        // Var is a parameter, a declared variable or a field, return
+        if (resolve(table, getCurrentMethod(), varRefName).isPresent()) {
             return null;
         }
 
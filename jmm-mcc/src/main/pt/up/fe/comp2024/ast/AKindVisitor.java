@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.AllNodesJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Visitor that finds the visit method of a node in an array indexed by the ordinal of its {@link Kind}, instead of
+ * looking up each kind of its hierarchy in the map of strings of {@link pt.up.fe.comp.jmm.ast.AJmmVisitor}.
+ * <p>
+ * The visit method of a kind is resolved with the usual rules (the most specific kind of the hierarchy that has a visit,
+ * otherwise the default visit) the first time a node of that kind is visited, and kept until a visit is added or the
+ * default visit changes. This assumes that all nodes of a kind have the same hierarchy, as the parsers build them.
+ * Nodes whose kind is not a {@link Kind} are dispatched as in the library.
+ * <p>
+ * The traversals of the subclasses ({@link #traverse(JmmNode, Object, boolean)}) keep the nodes still to visit in a
+ * stack of their own, so they need constant Java stack however deep the tree is.
+ *
+ * @param <D> type of the data passed to the visits
+ * @param <R> type of the result of the visits
+ */
+public abstract class AKindVisitor<D, R> extends AllNodesJmmVisitor<D, R> {
+
+    private static final int NUM_KINDS = Kind.values().length;
+
+    // not initialized in the declaration, buildVisitor() is called by the constructor of the superclass, before the
+    // fields of this class are initialized
+    private BiFunction<JmmNode, D, R>[] visits;
+    private BiFunction<JmmNode, D, R> defaultVisit;
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        super.addVisit(kind, method);
+        visits = null;
+    }
+
+    public void addVisit(Kind kind, BiFunction<JmmNode, D, R> method) {
+        addVisit(kind.getNodeName(), method);
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, D, R> defaultVisit) {
+        super.setDefaultVisit(defaultVisit);
+        this.defaultVisit = defaultVisit;
+        visits = null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        var kind = node instanceof CompactJmmNode compactNode ? compactNode.getNodeKind()
+                : Kind.fromStringOrNull(node.getKind());
+
+        if (kind == null) {
+            return super.getVisit(node);
+        }
+
+        if (visits == null) {
+            visits = new BiFunction[NUM_KINDS];
+        }
+
+        var visit = visits[kind.ordinal()];
+        if (visit == null) {
+            visit = super.getVisit(node);
+            visits[kind.ordinal()] = visit;
+        }
+
+        return visit;
+    }
+
+    /**
+     * Requires a default visit.
+     *
+     * @param node
+     * @return the visit of the node, or null if the node goes to the default visit
+     */
+    protected BiFunction<JmmNode, D, R> getOwnVisit(JmmNode node) {
+        var visit = getVisit(node);
+        return visit == defaultVisit ? null : visit;
+    }
+
+    /**
+     * Node being traversed, with the results of the children visited so far.
+     */
+    private class Frame {
+
+        private final JmmNode node;
+        private final boolean keepResults;
+        private List<JmmNode> children;
+        private List<R> childrenResults;
+        private R nodeResult;
+        private int nextChild;
+
+        private Frame(JmmNode node, boolean keepResults) {
+            this.node = node;
+            this.keepResults = keepResults;
+            this.children = null;
+            this.childrenResults = null;
+            this.nextChild = 0;
+        }
+
+        /**
+         * As in the library, the children are read after the preorder visit of the node, which may change them, and
+         * later changes do not change the traversal.
+         */
+        private List<JmmNode> getChildren() {
+            if (children == null) {
+                children = node.getChildren();
+                childrenResults = keepResults ? new ArrayList<>(children.size()) : null;
+            }
+
+            return children;
+        }
+    }
+
+    /**
+     * Visits every node of the tree, with the same order and results as the recursive traversals of
+     * {@link pt.up.fe.comp.jmm.ast.PreorderJmmVisitor} and {@link pt.up.fe.comp.jmm.ast.PostorderJmmVisitor}.
+     *
+     * @param root
+     * @param data
+     * @param preorder if true, each node is visited before its children, otherwise after them
+     * @return the result of the root, combined with the results of the children by the reduce function, if any
+     */
+    protected R traverse(JmmNode root, D data, boolean preorder) {
+        var reduce = getReduce();
+        var stack = new ArrayDeque<Frame>();
+
+        var rootFrame = new Frame(root, reduce != null);
+        if (preorder) {
+            rootFrame.nodeResult = getVisit(root).apply(root, data);
+        }
+        stack.push(rootFrame);
+
+        while (true) {
+            var frame = stack.peek();
+
+            var children = frame.getChildren();
+            if (frame.nextChild < children.size()) {
+                var child = children.get(frame.nextChild++);
+                var childFrame = new Frame(child, reduce != null);
+                if (preorder) {
+                    childFrame.nodeResult = getVisit(child).apply(child, data);
+                }
+                stack.push(childFrame);
+                continue;
+            }
+
+            // all the children were visited
+            stack.pop();
+            if (!preorder) {
+                frame.nodeResult = getVisit(frame.node).apply(frame.node, data);
+            }
+
+            var result = reduce == null ? frame.nodeResult : reduce.apply(frame.nodeResult, frame.childrenResults);
+
+            if (stack.isEmpty()) {
+                return result;
+            }
+
+            var parent = stack.peek();
+            if (parent.childrenResults != null) {
+                parent.childrenResults.add(result);
+            }
+        }
+    }
+}
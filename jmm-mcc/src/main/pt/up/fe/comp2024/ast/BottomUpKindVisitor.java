@@ -0,0 +1,139 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Visitor for code that builds the result of a node from the results of some of its descendants, without recursion.
+ * <p>
+ * Instead of calling visit() on the nodes it needs, each visit declares them as its dependencies. The dependencies are
+ * visited first, in order, with a stack of their own, and then the visit of the node reads their results with
+ * {@link #getResult(JmmNode)}. This way visiting a tree of any depth needs constant Java stack.
+ * <p>
+ * A visit added without dependencies only sees the node. The visits are dispatched as in {@link AKindVisitor}, and
+ * there is no reduce function.
+ *
+ * @param <D> type of the data passed to the visits
+ * @param <R> type of the result of the visits
+ */
+public abstract class BottomUpKindVisitor<D, R> extends AKindVisitor<D, R> {
+
+    // not initialized in the declaration, buildVisitor() is called by the constructor of the superclass, before the
+    // fields of this class are initialized
+    private Map<BiFunction<JmmNode, D, R>, Function<JmmNode, List<JmmNode>>> dependencies;
+
+    private Frame current;
+
+    /**
+     * Node being visited, with the results of the dependencies visited so far.
+     */
+    private class Frame {
+
+        private final JmmNode node;
+        private final BiFunction<JmmNode, D, R> visit;
+        private final List<JmmNode> dependencies;
+        private final List<R> results;
+
+        private Frame(JmmNode node) {
+            this.node = node;
+            this.visit = getVisit(node);
+            this.dependencies = getDependencies(visit, node);
+            this.results = new ArrayList<>(dependencies.size());
+        }
+    }
+
+    /**
+     * @param kind
+     * @param dependencies the nodes to visit before the node, usually some of its children
+     * @param method
+     */
+    public void addVisit(Kind kind, Function<JmmNode, List<JmmNode>> dependencies, BiFunction<JmmNode, D, R> method) {
+        addVisit(kind, method);
+        addDependencies(method, dependencies);
+    }
+
+    /**
+     * @param dependencies the nodes to visit before a node without a visit of its own
+     * @param defaultVisit
+     */
+    public void setDefaultVisit(Function<JmmNode, List<JmmNode>> dependencies, BiFunction<JmmNode, D, R> defaultVisit) {
+        setDefaultVisit(defaultVisit);
+        addDependencies(defaultVisit, dependencies);
+    }
+
+    private void addDependencies(BiFunction<JmmNode, D, R> method, Function<JmmNode, List<JmmNode>> nodes) {
+        if (dependencies == null) {
+            dependencies = new IdentityHashMap<>();
+        }
+
+        dependencies.put(method, nodes);
+    }
+
+    private List<JmmNode> getDependencies(BiFunction<JmmNode, D, R> visit, JmmNode node) {
+        var nodes = dependencies == null ? null : dependencies.get(visit);
+        return nodes == null ? List.of() : nodes.apply(node);
+    }
+
+    /**
+     * @param dependency one of the dependencies of the node being visited
+     * @return the result of visiting the dependency
+     */
+    protected R getResult(JmmNode dependency) {
+        SpecsCheck.checkNotNull(current, () -> "No node is being visited");
+
+        for (int i = 0; i < current.dependencies.size(); i++) {
+            if (current.dependencies.get(i) == dependency) {
+                return current.results.get(i);
+            }
+        }
+
+        throw new RuntimeException("Node " + dependency + " is not a dependency of " + current.node
+                + ", add it to the dependencies of the visit of " + current.node.getKind());
+    }
+
+    @Override
+    public R visit(JmmNode jmmNode, D data) {
+        SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
+
+        // visits can start a visit of their own, e.g. of a subtree that is not a dependency
+        var previous = current;
+        try {
+            return visitIteratively(jmmNode, data);
+        } finally {
+            current = previous;
+        }
+    }
+
+    private R visitIteratively(JmmNode root, D data) {
+        var stack = new ArrayDeque<Frame>();
+        stack.push(new Frame(root));
+
+        while (true) {
+            var frame = stack.peek();
+
+            if (frame.results.size() < frame.dependencies.size()) {
+                stack.push(new Frame(frame.dependencies.get(frame.results.size())));
+                continue;
+            }
+
+            // all the dependencies were visited
+            stack.pop();
+            current = frame;
+            var result = frame.visit.apply(frame.node, data);
+
+            if (stack.isEmpty()) {
+                return result;
+            }
+
+            stack.peek().results.add(result);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+
+/**
+ * AST node created by the parsers, which keeps the attributes every node has in typed fields instead of the generic
+ * map of {@link JmmNodeImpl}: the {@link Kind}, the positions as ints, the name, and the boolean locals of the grammar
+ * (isArray, isStatic, ...) as bits.
+ * <p>
+ * Seen through {@link JmmNode} it behaves as a JmmNodeImpl with the same attributes: positions are returned as Strings,
+ * flags as Booleans, and the other attributes (e.g. superClass, lib) or values of another type are kept in the map.
+ * Code that knows about this class (e.g. {@link NodeUtils}, {@link Kind#of(JmmNode)}) reads the fields directly.
+ */
+public class CompactJmmNode extends JmmNodeImpl {
+
+    private static final String[] POSITIONS = {NodePosition.LINE_START.getKey(), NodePosition.COL_START.getKey(),
+            NodePosition.LINE_END.getKey(), NodePosition.COL_END.getKey()};
+
+    private static final String NAME = "name";
+
+    private static final String[] FLAGS = {"isArray", "isVarArg", "isPublic", "isStatic", "isVirtual",
+            "ignore_first", "is_this"};
+
+    // bits of 'present', the flags start after the name
+    private static final int NAME_BIT = POSITIONS.length;
+    private static final int FIRST_FLAG_BIT = NAME_BIT + 1;
+
+    private final Kind nodeKind;
+    private int lineStart;
+    private int colStart;
+    private int lineEnd;
+    private int colEnd;
+    private String name;
+    private int present;
+    private int flags;
+    private Type exprType;
+
+    public CompactJmmNode(Kind kind) {
+        super(kind.getNodeName());
+        this.nodeKind = kind;
+    }
+
+    public Kind getNodeKind() {
+        return nodeKind;
+    }
+
+    /**
+     * Not an attribute, so it is not seen through {@link JmmNode} (e.g. in toString).
+     *
+     * @return the type the semantic analysis annotated this expression with, or null if it is not annotated
+     */
+    public Type getExprType() {
+        return exprType;
+    }
+
+    public void setExprType(Type exprType) {
+        this.exprType = exprType;
+    }
+
+    /**
+     * @param position
+     * @return the position, or -1 if the node does not have it
+     */
+    public int getPosition(NodePosition position) {
+        int index = positionIndex(position.getKey());
+        return index != -1 && isPresent(index) ? getPosition(index) : -1;
+    }
+
+    public void setPosition(NodePosition position, int value) {
+        int index = positionIndex(position.getKey());
+        if (index == -1) {
+            throw new RuntimeException("Position '" + position.getKey() + "' is not stored as an int");
+        }
+
+        setPosition(index, value);
+    }
+
+    /**
+     * @param flag
+     * @param defaultValue
+     * @return the value of a boolean attribute, or the default value if the node does not have it
+     */
+    public boolean getFlag(String flag, boolean defaultValue) {
+        int index = flagIndex(flag);
+        if (index != -1 && isPresent(FIRST_FLAG_BIT + index)) {
+            return (flags & (1 << index)) != 0;
+        }
+
+        var value = getAttributesMap().get(flag);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.toString());
+    }
+
+    @Override
+    public Object putObject(String attribute, Object value) {
+        var previous = getOptionalObject(attribute).orElse(null);
+
+        int index = positionIndex(attribute);
+        if (index != -1 && value instanceof String string && isInteger(string)) {
+            setPosition(index, Integer.parseInt(string));
+            return previous;
+        }
+
+        if (NAME.equals(attribute) && value instanceof String string) {
+            getAttributesMap().remove(NAME);
+            name = string;
+            present |= 1 << NAME_BIT;
+            return previous;
+        }
+
+        int flag = flagIndex(attribute);
+        if (flag != -1 && value instanceof Boolean bool) {
+            getAttributesMap().remove(attribute);
+            flags = bool ? flags | (1 << flag) : flags & ~(1 << flag);
+            present |= 1 << (FIRST_FLAG_BIT + flag);
+            return previous;
+        }
+
+        // any other value is kept as it is
+        clear(attribute);
+        getAttributesMap().put(attribute, value);
+        return previous;
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        int index = positionIndex(attribute);
+        if (index != -1 && isPresent(index)) {
+            return Integer.toString(getPosition(index));
+        }
+
+        if (NAME.equals(attribute) && isPresent(NAME_BIT)) {
+            return name;
+        }
+
+        int flag = flagIndex(attribute);
+        if (flag != -1 && isPresent(FIRST_FLAG_BIT + flag)) {
+            return (flags & (1 << flag)) != 0;
+        }
+
+        return super.getObject(attribute);
+    }
+
+    @Override
+    public Optional<Object> getOptionalObject(String attribute) {
+        if (!hasAttribute(attribute)) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(getObject(attribute));
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        int index = positionIndex(attribute);
+        if (index != -1 && isPresent(index)) {
+            return true;
+        }
+
+        if (NAME.equals(attribute) && isPresent(NAME_BIT)) {
+            return true;
+        }
+
+        int flag = flagIndex(attribute);
+        if (flag != -1 && isPresent(FIRST_FLAG_BIT + flag)) {
+            return true;
+        }
+
+        return getAttributesMap().containsKey(attribute);
+    }
+
+    /**
+     * Iterates in the same order as the keys of a JmmNodeImpl with the same attributes, so that toString and toTree
+     * print the same as for the nodes of the library converter (e.g. in the messages of the reports).
+     * <p>
+     * A JmmNodeImpl keeps its attributes in a HashMap with the default capacity, whose order depends on the hashes of
+     * the keys and, for keys in the same bucket, on the order they were put. A HashSet is backed by the same kind of
+     * map, so adding the attributes in the order the converter puts them (the positions first, then the attributes of
+     * the parsers) gives the same order.
+     */
+    @Override
+    public Collection<String> getAttributes() {
+        var attributes = new HashSet<String>();
+
+        for (int i = 0; i < POSITIONS.length; i++) {
+            if (isPresent(i)) {
+                attributes.add(POSITIONS[i]);
+            }
+        }
+
+        // the locals of expressions are added after the name, the other flags before it
+        for (int i = 0; i < FLAGS.length; i++) {
+            if (isPresent(FIRST_FLAG_BIT + i) && !isExprFlag(i)) {
+                attributes.add(FLAGS[i]);
+            }
+        }
+
+        if (isPresent(NAME_BIT)) {
+            attributes.add(NAME);
+        }
+
+        for (int i = 0; i < FLAGS.length; i++) {
+            if (isPresent(FIRST_FLAG_BIT + i) && isExprFlag(i)) {
+                attributes.add(FLAGS[i]);
+            }
+        }
+
+        attributes.addAll(getAttributesMap().keySet());
+
+        return attributes;
+    }
+
+    /**
+     * Returns the child without copying the list of children first, as the default implementation does.
+     */
+    @Override
+    public JmmNode getJmmChild(int index) {
+        return children.get(index);
+    }
+
+    @Override
+    public JmmNode getChild(int index) {
+        return children.get(index);
+    }
+
+    @Override
+    public int getIndexOfSelf() {
+        if (getParent() instanceof CompactJmmNode parent) {
+            return parent.children.indexOf(this);
+        }
+
+        return super.getIndexOfSelf();
+    }
+
+    /**
+     * Copies the attributes keeping their types, unlike JmmNodeImpl which turns every value into a String.
+     */
+    @Override
+    public JmmNode copyNode() {
+        var copy = new CompactJmmNode(nodeKind);
+        copy.setHierarchy(getHierarchy());
+
+        copy.lineStart = lineStart;
+        copy.colStart = colStart;
+        copy.lineEnd = lineEnd;
+        copy.colEnd = colEnd;
+        copy.name = name;
+        copy.present = present;
+        copy.flags = flags;
+        copy.getAttributesMap().putAll(getAttributesMap());
+
+        return copy;
+    }
+
+    private int getPosition(int index) {
+        return switch (index) {
+            case 0 -> lineStart;
+            case 1 -> colStart;
+            case 2 -> lineEnd;
+            default -> colEnd;
+        };
+    }
+
+    private void setPosition(int index, int value) {
+        getAttributesMap().remove(POSITIONS[index]);
+        switch (index) {
+            case 0 -> lineStart = value;
+            case 1 -> colStart = value;
+            case 2 -> lineEnd = value;
+            default -> colEnd = value;
+        }
+        present |= 1 << index;
+    }
+
+    private boolean isPresent(int bit) {
+        return (present & (1 << bit)) != 0;
+    }
+
+    private void clear(String attribute) {
+        int index = positionIndex(attribute);
+        if (index != -1) {
+            present &= ~(1 << index);
+        } else if (NAME.equals(attribute)) {
+            present &= ~(1 << NAME_BIT);
+            name = null;
+        } else {
+            int flag = flagIndex(attribute);
+            if (flag != -1) {
+                present &= ~(1 << (FIRST_FLAG_BIT + flag));
+            }
+        }
+    }
+
+    private static boolean isExprFlag(int flag) {
+        return flag >= 4;
+    }
+
+    private static int positionIndex(String attribute) {
+        return switch (attribute) {
+            case "lineStart" -> 0;
+            case "colStart" -> 1;
+            case "lineEnd" -> 2;
+            case "colEnd" -> 3;
+            default -> -1;
+        };
+    }
+
+    private static int flagIndex(String attribute) {
+        return switch (attribute) {
+            case "isArray" -> 0;
+            case "isVarArg" -> 1;
+            case "isPublic" -> 2;
+            case "isStatic" -> 3;
+            case "isVirtual" -> 4;
+            case "ignore_first" -> 5;
+            case "is_this" -> 6;
+            default -> -1;
+        };
+    }
+
+    private static boolean isInteger(String value) {
+        if (value.isEmpty() || value.length() > 9) {
+            return false;
+        }
+
+        int start = value.charAt(0) == '-' && value.length() > 1 ? 1 : 0;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
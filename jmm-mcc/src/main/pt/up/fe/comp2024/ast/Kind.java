@@ -4,6 +4,8 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public enum Kind {
@@ -41,11 +43,23 @@ public enum Kind {
 
     NEW_ARRAY,
 
-    THIS_EXPR;
+    THIS_EXPR,
+
+    PARANTHESES,
+
+    EXPRESSION;
 
     private static final Set<Kind> STATEMENTS = Set.of(ASSIGN_STMT, RET_STMT);
     private static final Set<Kind> EXPRESSIONS = Set.of(BINARY_EXPR, INTEGER_LITERAL, VAR_REF_EXPR);
 
+    private static final Map<String, Kind> NODE_NAMES = new HashMap<>();
+
+    static {
+        for (Kind k : Kind.values()) {
+            NODE_NAMES.put(k.getNodeName(), k);
+        }
+    }
+
     private final String name;
 
     Kind(String name) {
@@ -58,12 +72,34 @@ public enum Kind {
 
     public static Kind fromString(String kind) {
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = NODE_NAMES.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+
+        return k;
+    }
+
+    /**
+     * @param kind
+     * @return the Kind with the given node name, or null if there is none (e.g. a super kind such as "Expr")
+     */
+    static Kind fromStringOrNull(String kind) {
+        return NODE_NAMES.get(kind);
+    }
+
+    /**
+     * Same as fromString(node.getKind()), without the lookup for the nodes created by the parser.
+     *
+     * @param node
+     * @return
+     */
+    public static Kind of(JmmNode node) {
+        if (node instanceof CompactJmmNode compactNode) {
+            return compactNode.getNodeKind();
+        }
+
+        return fromString(node.getKind());
     }
 
     /**
@@ -130,6 +166,10 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
+        if (node instanceof CompactJmmNode compactNode) {
+            return compactNode.getNodeKind() == this;
+        }
+
         return node.getKind().equals(getNodeName());
     }
 
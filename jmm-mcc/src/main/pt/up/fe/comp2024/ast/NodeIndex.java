@@ -0,0 +1,166 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.Arrays;
+
+/**
+ * Nodes of a tree grouped by {@link Kind}, built with a single traversal, so that code that needs only the nodes of
+ * some kinds doesn't go through the whole tree again.
+ * <p>
+ * Each node has an id, its position in preorder. The descendants of a node are the nodes with ids after it, up to
+ * {@link #getEnd(int)}, and the ids of the nodes of a kind are kept in ascending order, so the nodes of a kind inside
+ * a subtree are a range of those ids (see {@link #lowerBound(Kind, int)}). Nodes whose kind is not a {@link Kind} are
+ * not in the ids of any kind.
+ * <p>
+ * The index is not updated when the tree changes.
+ */
+public class NodeIndex {
+
+    private static final int NUM_KINDS = Kind.values().length;
+    private static final int[] NO_IDS = new int[0];
+
+    private final JmmNode[] nodes;
+    private final int[] ends;
+    private final Kind[] kinds;
+    private final int[][] kindIds;
+
+    private NodeIndex(JmmNode[] nodes, int[] ends, Kind[] kinds, int[][] kindIds) {
+        this.nodes = nodes;
+        this.ends = ends;
+        this.kinds = kinds;
+        this.kindIds = kindIds;
+    }
+
+    /**
+     * @param root
+     * @return the index of the root and its descendants, the root has id 0
+     */
+    public static NodeIndex build(JmmNode root) {
+        var nodes = new JmmNode[64];
+        var ends = new int[64];
+        var kinds = new Kind[64];
+        var counts = new int[NUM_KINDS];
+        int numNodes = 0;
+
+        // the path from the root to the node being visited, with the ids of its nodes and their next child
+        var path = new JmmNode[16];
+        var pathIds = new int[16];
+        var pathNext = new int[16];
+        int depth = 0;
+
+        var node = root;
+        while (true) {
+            if (node != null) {
+                if (numNodes == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * numNodes);
+                    ends = Arrays.copyOf(ends, 2 * numNodes);
+                    kinds = Arrays.copyOf(kinds, 2 * numNodes);
+                }
+                nodes[numNodes] = node;
+                kinds[numNodes] = node instanceof CompactJmmNode compactNode ? compactNode.getNodeKind()
+                        : Kind.fromStringOrNull(node.getKind());
+                if (kinds[numNodes] != null) {
+                    counts[kinds[numNodes].ordinal()]++;
+                }
+
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, 2 * depth);
+                    pathIds = Arrays.copyOf(pathIds, 2 * depth);
+                    pathNext = Arrays.copyOf(pathNext, 2 * depth);
+                }
+                path[depth] = node;
+                pathIds[depth] = numNodes;
+                pathNext[depth] = 0;
+                depth++;
+                numNodes++;
+            }
+
+            // the next child of the deepest node that still has children to visit
+            var parent = path[depth - 1];
+            if (pathNext[depth - 1] < parent.getNumChildren()) {
+                node = parent.getJmmChild(pathNext[depth - 1]++);
+                continue;
+            }
+
+            ends[pathIds[depth - 1]] = numNodes;
+            depth--;
+            if (depth == 0) {
+                break;
+            }
+            node = null;
+        }
+
+        var kindIds = new int[NUM_KINDS][];
+        for (int i = 0; i < NUM_KINDS; i++) {
+            kindIds[i] = counts[i] == 0 ? NO_IDS : new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int id = 0; id < numNodes; id++) {
+            if (kinds[id] != null) {
+                int kind = kinds[id].ordinal();
+                kindIds[kind][counts[kind]++] = id;
+            }
+        }
+
+        return new NodeIndex(Arrays.copyOf(nodes, numNodes), Arrays.copyOf(ends, numNodes),
+                Arrays.copyOf(kinds, numNodes), kindIds);
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    public JmmNode getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * @param id
+     * @return the id after the last descendant of the node
+     */
+    public int getEnd(int id) {
+        return ends[id];
+    }
+
+    /**
+     * @param id
+     * @return the kind of the node, or null if it is not a {@link Kind}
+     */
+    public Kind getKind(int id) {
+        return kinds[id];
+    }
+
+    /**
+     * @param kind
+     * @return the number of nodes of the kind
+     */
+    public int getCount(Kind kind) {
+        return kindIds[kind.ordinal()].length;
+    }
+
+    /**
+     * @param kind
+     * @param index between 0 and {@link #getCount(Kind)}
+     * @return the id of the node of the kind at that position, in preorder
+     */
+    public int getId(Kind kind, int index) {
+        return kindIds[kind.ordinal()][index];
+    }
+
+    /**
+     * @param kind
+     * @param id
+     * @return the position of the first node of the kind with an id not smaller than the given one, or
+     * {@link #getCount(Kind)} if there is none
+     */
+    public int lowerBound(Kind kind, int id) {
+        var ids = kindIds[kind.ordinal()];
+        int index = Arrays.binarySearch(ids, id);
+
+        return index >= 0 ? index : -index - 1;
+    }
+}
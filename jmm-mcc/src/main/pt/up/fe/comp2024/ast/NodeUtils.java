@@ -1,15 +1,26 @@
 package pt.up.fe.comp2024.ast;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
 public class NodeUtils {
 
     public static int getLine(JmmNode node) {
+        if (node instanceof CompactJmmNode compactNode) {
+            return compactNode.getPosition(NodePosition.LINE_START);
+        }
 
         return getIntegerAttribute(node, "lineStart", "-1");
     }
 
     public static int getColumn(JmmNode node) {
+        if (node instanceof CompactJmmNode compactNode) {
+            return compactNode.getPosition(NodePosition.COL_START);
+        }
 
         return getIntegerAttribute(node, "colStart", "-1");
     }
@@ -20,9 +31,40 @@ public class NodeUtils {
     }
 
     public static boolean getBooleanAttribute(JmmNode node, String attribute, String defaultVal) {
+        if (node instanceof CompactJmmNode compactNode) {
+            return compactNode.getFlag(attribute, Boolean.parseBoolean(defaultVal));
+        }
+
         String line = node.getOptional(attribute).orElse(defaultVal);
         return Boolean.parseBoolean(line);
     }
 
+    /**
+     * Same as node.getDescendants(kind), without recursion, so it works on trees of any depth.
+     *
+     * @param node
+     * @param kind
+     * @return the descendants that are an instance of the kind, in preorder
+     */
+    public static List<JmmNode> getDescendants(JmmNode node, Kind kind) {
+        var descendants = new ArrayList<JmmNode>();
+        var stack = new ArrayDeque<JmmNode>();
+
+        for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+            stack.push(node.getJmmChild(i));
+        }
 
+        while (!stack.isEmpty()) {
+            var current = stack.pop();
+            if (current.isInstance(kind)) {
+                descendants.add(current);
+            }
+
+            for (int i = current.getNumChildren() - 1; i >= 0; i--) {
+                stack.push(current.getJmmChild(i));
+            }
+        }
+
+        return descendants;
+    }
 }
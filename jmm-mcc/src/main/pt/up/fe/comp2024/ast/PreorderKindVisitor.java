@@ -0,0 +1,18 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+/**
+ * Same as {@link pt.up.fe.comp.jmm.ast.PreorderJmmVisitor}, with the dispatch of {@link AKindVisitor} and without
+ * recursion.
+ */
+public abstract class PreorderKindVisitor<D, R> extends AKindVisitor<D, R> {
+
+    @Override
+    public R visit(JmmNode jmmNode, D data) {
+        SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
+
+        return traverse(jmmNode, data, true);
+    }
+}
@@ -3,15 +3,120 @@ package pt.up.fe.comp2024.ast;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class TypeUtils {
 
     private static final String INT_TYPE_NAME = "int";
 
+    private static final Type INT_TYPE = new Type(INT_TYPE_NAME, false);
+    private static final Type BOOLEAN_TYPE = new Type("boolean", false);
+    private static final Type INT_ARRAY_TYPE = new Type(INT_TYPE_NAME, true);
+    private static final Type UNKNOWN_TYPE = new Type("", false);
+
+    // canonical instances of the primitive types, see getType
+    private static final Map<String, Type> PRIMITIVE_TYPES = Map.of(INT_TYPE_NAME, INT_TYPE,
+            "boolean", BOOLEAN_TYPE,
+            "void", new Type("void", false),
+            "", UNKNOWN_TYPE);
+    private static final Map<String, Type> PRIMITIVE_ARRAY_TYPES = Map.of(INT_TYPE_NAME, INT_ARRAY_TYPE,
+            "boolean", new Type("boolean", true));
+
     public static String getIntTypeName() {
         return INT_TYPE_NAME;
     }
 
+    /**
+     * Returns the canonical instance of a primitive type, instead of creating a new one. The instances are shared by
+     * every compilation, so attributes must not be added to them. Class types are created each time, see
+     * {@link #getType(String, boolean, Map)} to reuse them within a compilation.
+     * <p>
+     * Canonical instances can be compared with ==, see {@link #isSameType(Type, Type)}. They are still equal to other
+     * instances of the same type, e.g. created by the tests.
+     *
+     * @param name
+     * @param isArray
+     * @return
+     */
+    public static Type getType(String name, boolean isArray) {
+        var primitive = (isArray ? PRIMITIVE_ARRAY_TYPES : PRIMITIVE_TYPES).get(name);
+        return primitive != null ? primitive : new Type(name, isArray);
+    }
+
+    /**
+     * Same as {@link #getType(String, boolean)}, but class types are also canonical, kept in the given map. The map
+     * belongs to a single compilation (see {@link JmmSymbolTable#getType(String, boolean)}), so a resident compiler
+     * does not keep the classes of every program it compiled.
+     *
+     * @param name
+     * @param isArray
+     * @param classTypes the class types of the compilation, by name ('[]' appended for arrays)
+     * @return
+     */
+    public static Type getType(String name, boolean isArray, Map<String, Type> classTypes) {
+        var primitive = (isArray ? PRIMITIVE_ARRAY_TYPES : PRIMITIVE_TYPES).get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+
+        return classTypes.computeIfAbsent(isArray ? name + "[]" : name, key -> new Type(name, isArray));
+    }
+
+    /**
+     * @param name
+     * @param isArray
+     * @param table
+     * @return the canonical instance of the type in the compilation of the table, if the table was built by
+     * {@link JmmSymbolTableBuilder}
+     */
+    public static Type getType(String name, boolean isArray, SymbolTable table) {
+        return table instanceof JmmSymbolTable jmmTable ? jmmTable.getType(name, isArray) : getType(name, isArray);
+    }
+
+    public static Type intType() {
+        return INT_TYPE;
+    }
+
+    public static Type booleanType() {
+        return BOOLEAN_TYPE;
+    }
+
+    public static Type intArrayType() {
+        return INT_ARRAY_TYPE;
+    }
+
+    /**
+     * @return the type of expressions whose type is not known, with an empty name
+     */
+    public static Type unknownType() {
+        return UNKNOWN_TYPE;
+    }
+
+    /**
+     * @param type
+     * @param other
+     * @return true if both have the same name and are both arrays or both not arrays, without comparing the names of
+     * canonical instances
+     */
+    public static boolean isSameType(Type type, Type other) {
+        return type == other || (type.isArray() == other.isArray() && type.getName().equals(other.getName()));
+    }
+
+    /**
+     * @param expr
+     * @return the type computed for the expression by the type annotation of the semantic analysis, or null if the
+     * expression was not annotated
+     */
+    public static Type getAnnotatedType(JmmNode expr) {
+        return expr instanceof CompactJmmNode node ? node.getExprType() : null;
+    }
+
     /**
      * Gets the {@link Type} of an arbitrary expression.
      *
@@ -20,15 +125,36 @@ public class TypeUtils {
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table) {
-        // TODO: Simple implementation that needs to be expanded
+        return getExprType(expr, table, null);
+    }
+
+    /**
+     * Same as {@link #getExprType(JmmNode, SymbolTable)}, for callers that already know the method of the expression
+     * (looking it up goes through all the ancestors of the expression, which is slow in deep expressions). Annotated
+     * expressions don't need the method.
+     *
+     * @param expr
+     * @param table
+     * @param currentMethod the method that contains the expression, or null to look it up
+     * @return
+     */
+    public static Type getExprType(JmmNode expr, SymbolTable table, String currentMethod) {
+        var kind = Kind.of(expr);
+
+        // computed once by the semantic analysis
+        var annotated = getAnnotatedType(expr);
+        if (annotated != null) {
+            // names that are not variables (e.g. of imported classes) are taken as ints here
+            return kind == Kind.VAR_REF_EXPR && annotated == UNKNOWN_TYPE ? INT_TYPE : annotated;
+        }
 
-        var kind = Kind.fromString(expr.getKind());
+        // TODO: Simple implementation that needs to be expanded
 
         Type type = switch (kind) {
             case BINARY_EXPR -> getBinExprType(expr);
-            case VAR_REF_EXPR -> getVarExprType(expr, table);
-            case INTEGER_LITERAL -> new Type(INT_TYPE_NAME, false);
-            case ARRAY_ACCESS -> new Type(INT_TYPE_NAME, false); // TODO: change this from hard coded
+            case VAR_REF_EXPR -> getVarExprType(expr, table, currentMethod);
+            case INTEGER_LITERAL -> INT_TYPE;
+            case ARRAY_ACCESS -> INT_TYPE; // TODO: change this from hard coded
             default -> throw new UnsupportedOperationException("Can't compute type for expression kind '" + kind + "'");
         };
 
@@ -41,30 +167,45 @@ public class TypeUtils {
         String operator = binaryExpr.get("name");
 
         return switch (operator) {
-            case "+", "*", "/", "-" -> new Type(INT_TYPE_NAME, false);
-            case "<", "||", "&&" -> new Type("boolean", false);
+            case "+", "*", "/", "-" -> INT_TYPE;
+            case "<", "||", "&&" -> BOOLEAN_TYPE;
             default ->
                     throw new RuntimeException("Unknown operator '" + operator + "' of expression '" + binaryExpr + "'");
         };
     }
 
 
-    private static Type getVarExprType(JmmNode varRefExpr, SymbolTable table) {
+    private static Type getVarExprType(JmmNode varRefExpr, SymbolTable table, String currentMethod) {
 
-        var currentMethod = varRefExpr.getAncestor(Kind.METHOD_DECL).get().get("name");
-
-        for (var variable : table.getLocalVariables(currentMethod)) {
-            if (variable.getName().equals(varRefExpr.get("name"))) {
-                return variable.getType();
-            }
+        if (currentMethod == null) {
+            currentMethod = varRefExpr.getAncestor(Kind.METHOD_DECL).get().get("name");
         }
 
-        for (var variable : table.getFields()) {
-            if (variable.getName().equals(varRefExpr.get("name"))) {
-                return variable.getType();
-            }
+        return resolve(table, currentMethod, varRefExpr.get("name"))
+                .map(ResolvedSymbol::getType)
+                .orElse(INT_TYPE);
+    }
+
+    /**
+     * Finds the variable a name refers to inside a method, see {@link JmmSymbolTable#resolve(String, String)}.
+     * Tables built by {@link JmmSymbolTableBuilder} are already indexed, other tables are searched linearly.
+     *
+     * @param table
+     * @param method
+     * @param name
+     * @return the variable, or empty if there is no variable with that name
+     */
+    public static Optional<ResolvedSymbol> resolve(SymbolTable table, String method, String name) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable.resolve(method, name);
         }
-        return new Type(INT_TYPE_NAME, false);
+
+        boolean isMethod = method != null && table.getMethods().contains(method);
+        var scope = JmmSymbolTableBuilder.buildScope(table.getFields(),
+                isMethod ? table.getParameters(method) : List.of(),
+                isMethod ? table.getLocalVariables(method) : List.of());
+
+        return Optional.ofNullable(scope.get(name));
     }
 
     /**
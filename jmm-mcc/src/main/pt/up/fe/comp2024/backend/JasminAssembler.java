@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.backend;
+
+import jas.jasError;
+import jasmin.ClassFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+/**
+ * Assembles Jasmin code into class file bytes in memory, using the bundled Jasmin assembler, without writing
+ * intermediate files or spawning processes.
+ */
+public class JasminAssembler {
+
+    // Jasmin keeps some state in static fields, so assembling is not thread-safe
+    private static final Object LOCK = new Object();
+
+    /**
+     * @param jasminCode
+     * @param className used in the error messages
+     * @return the bytes of the class file
+     */
+    public static byte[] assemble(String jasminCode, String className) {
+
+        var classBytes = new ByteArrayOutputStream();
+
+        synchronized (LOCK) {
+            try {
+                var classFile = new ClassFile();
+                classFile.readJasmin(new StringReader(jasminCode), className + ".j", true);
+
+                // if we got some errors, there is no class file
+                if (classFile.errorCount() > 0) {
+                    throw new RuntimeException("Found " + classFile.errorCount()
+                            + " errors while assembling Jasmin code of class '" + className + "'");
+                }
+
+                classFile.write(classBytes);
+            } catch (jasError e) {
+                throw new RuntimeException("JAS Error while assembling class '" + className + "': " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Exception while assembling class '" + className + "': " + e.getMessage(), e);
+            }
+        }
+
+        return classBytes.toByteArray();
+    }
+}
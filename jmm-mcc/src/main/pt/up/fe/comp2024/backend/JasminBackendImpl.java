@@ -3,6 +3,9 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.List;
 
 public class JasminBackendImpl implements JasminBackend {
 
@@ -13,4 +16,27 @@ public class JasminBackendImpl implements JasminBackend {
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
+    /**
+     * Writes the Jasmin code directly into the given output (e.g. a file Writer), without building it in memory.
+     *
+     * @param ollirResult
+     * @param out
+     * @return the reports of the generation
+     */
+    public List<Report> toJasmin(OllirResult ollirResult, Appendable out) {
+        var jasminGenerator = new JasminGenerator(ollirResult);
+        jasminGenerator.build(out);
+        return jasminGenerator.getReports();
+    }
+
+    /**
+     * Assembles the generated Jasmin code in memory.
+     *
+     * @param jasminResult
+     * @return the bytes of the class file
+     */
+    public byte[] assemble(JasminResult jasminResult) {
+        return JasminAssembler.assemble(jasminResult.getJasminCode(), jasminResult.getClassName());
+    }
+
 }
@@ -4,17 +4,18 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.specs.util.classmap.FunctionClassMap;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Generates Jasmin code from an OllirResult.
  * <p>
+ * The generators write the code directly into a {@link JasminWriter}, which can wrap any Appendable (e.g. a file
+ * Writer).
+ * <p>
  * One JasminGenerator instance per OllirResult.
  */
 public class JasminGenerator {
@@ -23,7 +24,7 @@ public class JasminGenerator {
     private static final String TAB = "   ";
 
     private final OllirResult ollirResult;
-    private final FunctionClassMap<TreeNode, String> generators;
+    private final BiConsumerClassMap<TreeNode, JasminWriter> generators;
     List<Report> reports;
     String code;
     Method currentMethod;
@@ -36,7 +37,7 @@ public class JasminGenerator {
         code = null;
         currentMethod = null;
 
-        this.generators = new FunctionClassMap<>();
+        this.generators = new BiConsumerClassMap<>();
         generators.put(ClassUnit.class, this::generateClassUnit);
         generators.put(Field.class, this::generateField);
         generators.put(Method.class, this::generateMethod);
@@ -64,17 +65,24 @@ public class JasminGenerator {
 
         // This way, build is idempotent
         if (code == null) {
-            code = generators.apply(ollirResult.getOllirClass());
+            var builder = new StringBuilder();
+            build(builder);
+            code = builder.toString();
         }
 
-        // for debug
-        System.out.println(code);
         return code;
     }
 
-    private String generateClassUnit(ClassUnit classUnit) {
+    /**
+     * Writes the Jasmin code directly into the given output, without keeping the whole program in memory.
+     *
+     * @param out
+     */
+    public void build(Appendable out) {
+        generators.accept(ollirResult.getOllirClass(), new JasminWriter(out));
+    }
 
-        var code = new StringBuilder();
+    private void generateClassUnit(ClassUnit classUnit, JasminWriter code) {
 
         // generate class name
         var className = ollirResult.getOllirClass().getClassName();
@@ -89,7 +97,7 @@ public class JasminGenerator {
         // fields???
         code.append("; Fields").append(NL);
         for (var field : ollirResult.getOllirClass().getFields()) {
-            code.append(generators.apply(field));
+            generators.accept(field, code);
         }
 
         // generate a single constructor method
@@ -114,10 +122,8 @@ public class JasminGenerator {
                 continue;
             }
 
-            code.append(generators.apply(method));
+            generators.accept(method, code);
         }
-
-        return code.toString();
     }
 
     private String convertImport(String path) {
@@ -147,13 +153,12 @@ public class JasminGenerator {
         };
     }
 
-    private String generateField(Field field) {
-        return String.format(
-                ".field public %s %s%s",
-                field.getFieldName(),
-                convertType(field.getFieldType()),
-                NL
-        );
+    private void generateField(Field field, JasminWriter code) {
+        code.append(".field public ")
+                .append(field.getFieldName())
+                .append(" ")
+                .append(convertType(field.getFieldType()))
+                .append(NL);
     }
 
     private String generateLimitLocals() {
@@ -168,12 +173,10 @@ public class JasminGenerator {
         return String.format(".limit locals %s", registerCount);
     }
 
-    private String generateMethod(Method method) {
+    private void generateMethod(Method method, JasminWriter code) {
         // set method
         currentMethod = method;
 
-        var code = new StringBuilder();
-
         var methodName = method.getMethodName();
 
         // calculate modifier
@@ -213,7 +216,7 @@ public class JasminGenerator {
             method.getLabels().entrySet().stream()
                     .filter(entry -> entry.getValue().equals(inst))
                     .findFirst()
-                    .ifPresent(entry -> code.append(String.format("%s:\n", entry.getKey())));
+                    .ifPresent(entry -> code.append(entry.getKey()).append(":").append(NL));
 
             // if an invoke virtual or invoke static instruction is being called
             // from here, it will need pop, since that means it's not in an assignment
@@ -226,21 +229,18 @@ public class JasminGenerator {
                     }
                 }
             }
-            var instCode = StringLines.getLines(generators.apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
-
-            code.append(instCode);
+            // every line of the instruction is indented
+            code.beginInstruction();
+            generators.accept(inst, code);
+            code.endInstruction();
         }
         code.append(".end method\n");
 
         // unset method
         currentMethod = null;
-
-        return code.toString();
     }
 
-    private String generateAssign(AssignInstruction assign) {
-        var code = new StringBuilder();
+    private void generateAssign(AssignInstruction assign, JasminWriter code) {
 
         // if right hand side of the expression is a call instruction,
         // and if it is an invokevirtual or static, we don't need pop,
@@ -259,7 +259,7 @@ public class JasminGenerator {
             }
         }
         // generate code for loading what's on the right
-        code.append(generators.apply(rhs));
+        generators.accept(rhs, code);
 
         // store value in the stack in destination
         var lhs = assign.getDest();
@@ -274,20 +274,16 @@ public class JasminGenerator {
         String inst;
         String end = reg > 3 ? " " : "_";
         if (lhs instanceof ArrayOperand) { // esta merda n funciona** (funciona agora)
-            code.append(String.format(
-                    "aload%s%s\n%s%s",
-                    end,
-                    reg,
-                    generators.apply(((ArrayOperand) lhs).getIndexOperands().get(0)),
-                    generators.apply(rhs)
-            ));
+            code.append("aload").append(end).append(reg).append(NL);
+            generators.accept(((ArrayOperand) lhs).getIndexOperands().get(0), code);
+            generators.accept(rhs, code);
         }
 
         switch (varType) {
             case INT32, BOOLEAN: {
                 if (currentMethod.getVarTable().get(operand.getName()).getVarType().getTypeOfElement() == ElementType.ARRAYREF) {
                     code.append("iastore").append(NL);
-                    return code.toString();
+                    return;
                 }
                 inst = String.format("istore%s", end);
                 break;
@@ -299,23 +295,21 @@ public class JasminGenerator {
         }
 
         code.append(inst).append(reg).append(NL);
-
-        return code.toString();
     }
 
-    private String generatePutFieldInstruction(PutFieldInstruction putFieldInstruction) {
-        var code = new StringBuilder();
+    private void generatePutFieldInstruction(PutFieldInstruction putFieldInstruction, JasminWriter code) {
 
         var value = putFieldInstruction.getValue();
         var field = putFieldInstruction.getField();
 
         // load "this"
-        code.append(generators.apply(putFieldInstruction.getObject())).append(NL);
+        generators.accept(putFieldInstruction.getObject(), code);
+        code.append(NL);
 
         // push value
         // note: other instructions other than ldc exist, that may be more
         // efficient in different situations. But I don't think that's needed here
-        code.append(generators.apply(value));
+        generators.accept(value, code);
 
         // put instruction
         // this part seems ok for now
@@ -324,29 +318,24 @@ public class JasminGenerator {
         String fieldType = convertType(field.getType());
         String putInst = String.format("putfield %s/%s %s", className, fieldName, fieldType);
         code.append(putInst).append(NL);
-
-        return code.toString();
     }
 
-    private String generateGetFieldInstruction(GetFieldInstruction getFieldInstruction) {
-        var code = new StringBuilder();
+    private void generateGetFieldInstruction(GetFieldInstruction getFieldInstruction, JasminWriter code) {
 
         var field = getFieldInstruction.getField();
 
         // load "this"
-        code.append(generators.apply(getFieldInstruction.getObject())).append(NL);
+        generators.accept(getFieldInstruction.getObject(), code);
+        code.append(NL);
 
         String className = convertImport(getFieldInstruction.getObject().getName());
         String fieldName = field.getName();
         String fieldType = convertType(field.getType());
         String getInst = String.format("getfield %s/%s %s", className, fieldName, fieldType);
         code.append(getInst).append(NL);
-
-        return code.toString();
     }
 
-    private String generateCallInstruction(CallInstruction callInstruction) {
-        var code = new StringBuilder();
+    private void generateCallInstruction(CallInstruction callInstruction, JasminWriter code) {
 
         var invocationType = callInstruction.getInvocationType();
         var typeOfElement = callInstruction.getCaller().getType().getTypeOfElement();
@@ -379,68 +368,69 @@ public class JasminGenerator {
             code.append("dup");
             code.append(NL);
             needsPop = true;
-            return code.toString();
-        }
-
-        // get load instructions and call instruction arguments
-        StringBuilder loadInstructions = new StringBuilder();
-        StringBuilder arguments = new StringBuilder();
-        if (invocationType == CallType.invokespecial || invocationType == CallType.invokevirtual) {
-            loadInstructions.append(generators.apply(callInstruction.getCaller()));
-        }
-        for (var argument : callInstruction.getArguments()) {
-            arguments.append(convertType(argument.getType()));
-
-            String op = generators.apply(argument);
-            loadInstructions.append(op);
+            return;
         }
 
-        if (invocationType == CallType.NEW && typeOfElement == ElementType.ARRAYREF) {
+        if (invocationType == CallType.arraylength) {
+            generators.accept(callInstruction.getCaller(), code);
+            code.append(NL).append("arraylength").append(NL);
+            generateLoadInstructions(callInstruction, code);
+            code.append(NL);
+        } else if (invocationType == CallType.NEW && typeOfElement == ElementType.ARRAYREF) {
             inst = "newarray int";
-            code.append(loadInstructions).append(NL);
+            generateLoadInstructions(callInstruction, code);
+            code.append(NL);
             code.append(inst).append(NL);
-            return code.toString();
-        }
-
-        if (invocationType == CallType.arraylength) {
-            inst = String.format(
-                    "%s\n%s\n%s\n",
-                    generators.apply(callInstruction.getCaller()),
-                    "arraylength",
-                    loadInstructions
-            );
+            return;
         } else {
             String methodName = switch (invocationType) {
                 case invokespecial -> "<init>";
                 default -> ((LiteralElement) callInstruction.getMethodName()).getLiteral().replace("\"", "");
             };
             String returnType = convertType(callInstruction.getReturnType());
-            inst = String.format(
-                    "%s%s %s/%s(%s)%s",
-                    loadInstructions,
-                    callInstruction.getInvocationType().toString(),
-                    convertImport(methodClassName),
-                    methodName,
-                    arguments,
-                    returnType
-            );
+
+            var arguments = new StringBuilder();
+            for (var argument : callInstruction.getArguments()) {
+                arguments.append(convertType(argument.getType()));
+            }
+
+            generateLoadInstructions(callInstruction, code);
+            code.append(callInstruction.getInvocationType().toString())
+                    .append(" ")
+                    .append(convertImport(methodClassName))
+                    .append("/")
+                    .append(methodName)
+                    .append("(")
+                    .append(arguments)
+                    .append(")")
+                    .append(returnType);
         }
-        code.append(inst).append(NL);
+        code.append(NL);
 
         if (needsPop) {
             code.append("pop").append(NL);
             needsPop = false;
         }
+    }
 
-        return code.toString();
+    /**
+     * Loads the caller (for invokespecial and invokevirtual) and then the arguments of a call.
+     */
+    private void generateLoadInstructions(CallInstruction callInstruction, JasminWriter code) {
+        var invocationType = callInstruction.getInvocationType();
+        if (invocationType == CallType.invokespecial || invocationType == CallType.invokevirtual) {
+            generators.accept(callInstruction.getCaller(), code);
+        }
+        for (var argument : callInstruction.getArguments()) {
+            generators.accept(argument, code);
+        }
     }
 
-    private String generateSingleOp(SingleOpInstruction singleOp) {
-        return generators.apply(singleOp.getSingleOperand());
+    private void generateSingleOp(SingleOpInstruction singleOp, JasminWriter code) {
+        generators.accept(singleOp.getSingleOperand(), code);
     }
 
-    private String generateOpCondInstruction(OpCondInstruction opCondInstruction) {
-        var code = new StringBuilder();
+    private void generateOpCondInstruction(OpCondInstruction opCondInstruction, JasminWriter code) {
 
         var inst = opCondInstruction.getCondition();
         var leftOp = ((BinaryOpInstruction) inst).getLeftOperand();
@@ -449,65 +439,63 @@ public class JasminGenerator {
 
         // maybe merge these and change only the if
         if (opType == OperationType.LTH) {
-            code.append(generators.apply(leftOp))
-                    .append(generators.apply(rightOp))
-                    .append("if_icmplt ").append(opCondInstruction.getLabel())
+            generators.accept(leftOp, code);
+            generators.accept(rightOp, code);
+            code.append("if_icmplt ").append(opCondInstruction.getLabel())
                     .append(NL);
         } else if (opType == OperationType.GTE) {
-            code.append(generators.apply(leftOp))
-                    .append(generators.apply(rightOp))
-                    .append("if_icmpge ").append(opCondInstruction.getLabel())
+            generators.accept(leftOp, code);
+            generators.accept(rightOp, code);
+            code.append("if_icmpge ").append(opCondInstruction.getLabel())
                     .append(NL);
         }
-        return code.toString();
     }
 
-    private String generateSingleOpCondInstruction(SingleOpCondInstruction singleOpCondInstruction) {
-        return String.format("%s\nifne %s", generators.apply(singleOpCondInstruction.getCondition()), singleOpCondInstruction.getLabel());
+    private void generateSingleOpCondInstruction(SingleOpCondInstruction singleOpCondInstruction, JasminWriter code) {
+        generators.accept(singleOpCondInstruction.getCondition(), code);
+        code.append(NL).append("ifne ").append(singleOpCondInstruction.getLabel());
     }
 
-    private String generateGotoInstruction(GotoInstruction gotoInstruction) {
-        return String.format("goto %s", gotoInstruction.getLabel());
+    private void generateGotoInstruction(GotoInstruction gotoInstruction, JasminWriter code) {
+        code.append("goto ").append(gotoInstruction.getLabel());
     }
 
-    private String generateUnaryOpInstruction(UnaryOpInstruction unaryOpInstruction) {
-        var code = new StringBuilder();
-
+    private void generateUnaryOpInstruction(UnaryOpInstruction unaryOpInstruction, JasminWriter code) {
         if (unaryOpInstruction.getOperation().getOpType() == OperationType.NOTB) {
-            code.append(String.format("iconst_1\n%sixor\n",
-                    generators.apply(unaryOpInstruction.getOperand())
-            ));
+            code.append("iconst_1").append(NL);
+            generators.accept(unaryOpInstruction.getOperand(), code);
+            code.append("ixor").append(NL);
         }
-
-        return code.toString();
     }
 
-    private String generateLiteral(LiteralElement literal) {
+    private void generateLiteral(LiteralElement literal, JasminWriter code) {
         try {
             int value = Integer.parseInt(literal.getLiteral());
             if (value >= -1 && value <= 5) {
-                return "iconst_" + value + NL;
+                code.append("iconst_").append(value).append(NL);
             } else if (value >= -128 && value <= 127) {
-                return "bipush " + value + NL;
+                code.append("bipush ").append(value).append(NL);
             } else if (value >= -32768 && value <= 32767) {
-                return "sipush " + value + NL;
+                code.append("sipush ").append(value).append(NL);
             } else {
-                return "ldc " + value + NL;
+                code.append("ldc ").append(value).append(NL);
             }
         } catch (NumberFormatException e) {
-            return "ldc " + literal.getLiteral() + NL;
+            code.append("ldc ").append(literal.getLiteral()).append(NL);
         }
     }
 
-    private String generateArrayOperand(ArrayOperand arrayOperand) {
+    private void generateArrayOperand(ArrayOperand arrayOperand, JasminWriter code) {
         var reg = currentMethod.getVarTable().get(arrayOperand.getName()).getVirtualReg();
 
         String end = reg > 3 ? " " : "_";
 
-        return "aload" + end + reg + NL + generators.apply(arrayOperand.getIndexOperands().get(0)) + "iaload" + NL;
+        code.append("aload").append(end).append(reg).append(NL);
+        generators.accept(arrayOperand.getIndexOperands().get(0), code);
+        code.append("iaload").append(NL);
     }
 
-    private String generateOperand(Operand operand) {
+    private void generateOperand(Operand operand, JasminWriter code) {
         var varType = currentMethod.getVarTable().get(operand.getName()).getVarType();
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
 
@@ -518,17 +506,15 @@ public class JasminGenerator {
             default -> String.format("aload%s", end);
         };
 
-        return String.format("%s%s\n", loadInst, reg);
+        code.append(loadInst).append(reg).append(NL);
     }
 
-    private String generateBinaryOp(BinaryOpInstruction binaryOp) {
-        var leftOp = generators.apply(binaryOp.getLeftOperand());
-        var rightOp = generators.apply(binaryOp.getRightOperand());
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, JasminWriter code) {
+        generators.accept(binaryOp.getLeftOperand(), code);
+        generators.accept(binaryOp.getRightOperand(), code);
         var opType = binaryOp.getOperation().getOpType();
 
-        return leftOp +
-            rightOp +
-            switch (opType) {
+        code.append(switch (opType) {
                 // arithmetic
                 case ADD -> "iadd";
                 case MUL -> "imul";
@@ -538,8 +524,7 @@ public class JasminGenerator {
                 case LTH -> "if_icmplt";
                 case GTE -> "if_icmpte";
                 default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
-            } +
-            NL;
+            }).append(NL);
     }
 
     // "optimized" version that doesn't work
@@ -587,23 +572,20 @@ public class JasminGenerator {
         return code.toString();
     } */
 
-    private String generateReturn(ReturnInstruction returnInst) {
-        var code = new StringBuilder();
+    private void generateReturn(ReturnInstruction returnInst, JasminWriter code) {
 
         switch (currentMethod.getReturnType().getTypeOfElement()) {
             case VOID:
                 code.append("return").append(NL);
                 break;
             case OBJECTREF:
-                code.append(generators.apply(returnInst.getOperand()));
+                generators.accept(returnInst.getOperand(), code);
                 code.append("areturn").append(NL);
             default:
-                code.append(generators.apply(returnInst.getOperand()));
+                generators.accept(returnInst.getOperand(), code);
                 code.append("ireturn").append(NL);
                 break;
         }
-
-        return code.toString();
     }
 
 }
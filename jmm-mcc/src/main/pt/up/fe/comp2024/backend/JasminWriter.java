@@ -0,0 +1,104 @@
+package pt.up.fe.comp2024.backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Sink for the generated Jasmin code.
+ * <p>
+ * Generators write their code directly into the output, and the lines of each instruction are indented as they are
+ * written, instead of being built into intermediate strings that are later split and joined again.
+ */
+public class JasminWriter {
+
+    private static final String TAB = "   ";
+
+    private final Appendable out;
+    private boolean inInstruction;
+    private boolean lineStart;
+    private boolean instructionEmpty;
+
+    public JasminWriter(Appendable out) {
+        this.out = out;
+        this.inInstruction = false;
+        this.lineStart = true;
+        this.instructionEmpty = true;
+    }
+
+    /**
+     * Every line written until {@link #endInstruction()} is indented.
+     */
+    public void beginInstruction() {
+        inInstruction = true;
+        lineStart = true;
+        instructionEmpty = true;
+    }
+
+    /**
+     * Terminates the last line of the current instruction, if needed.
+     */
+    public void endInstruction() {
+        if (instructionEmpty) {
+            // an instruction without code still takes an (indented) line
+            write(TAB);
+            write("\n");
+        } else if (!lineStart) {
+            write("\n");
+        }
+
+        inInstruction = false;
+        lineStart = true;
+    }
+
+    public JasminWriter append(CharSequence code) {
+        if (!inInstruction) {
+            write(code);
+            return this;
+        }
+
+        int start = 0;
+        int length = code.length();
+        while (start < length) {
+            if (lineStart) {
+                write(TAB);
+                lineStart = false;
+            }
+
+            int end = start;
+            while (end < length && code.charAt(end) != '\n') {
+                end++;
+            }
+
+            if (end < length) {
+                // include the line break
+                end++;
+                lineStart = true;
+            }
+
+            write(code, start, end);
+            start = end;
+        }
+
+        if (length > 0) {
+            instructionEmpty = false;
+        }
+
+        return this;
+    }
+
+    public JasminWriter append(int value) {
+        return append(Integer.toString(value));
+    }
+
+    private void write(CharSequence code) {
+        write(code, 0, code.length());
+    }
+
+    private void write(CharSequence code, int start, int end) {
+        try {
+            out.append(code, start, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write Jasmin code", e);
+        }
+    }
+}
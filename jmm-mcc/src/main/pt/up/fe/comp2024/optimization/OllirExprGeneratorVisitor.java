@@ -3,17 +3,22 @@ package pt.up.fe.comp2024.optimization;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.BottomUpKindVisitor;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
+ * <p>
+ * The code of the operands is generated before the code of the expression that uses them, without recursion, so
+ * expressions of any depth can be compiled.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends BottomUpKindVisitor<Void, OllirExprResult> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -21,30 +26,51 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private final SymbolTable table;
 
+    private String currentMethod;
+
     public OllirExprGeneratorVisitor(SymbolTable table) {
         this.table = table;
     }
 
+    @Override
+    public OllirExprResult visit(JmmNode jmmNode, Void data) {
+        // looked up once for the whole expression, instead of once for each variable
+        currentMethod = jmmNode.getAncestor(METHOD_DECL).map(method -> method.get("name")).orElse(null);
+
+        return super.visit(jmmNode, data);
+    }
+
     @Override
     protected void buildVisitor() {
         addVisit(VAR_REF_EXPR, this::visitVarRef);
-        addVisit(BINARY_EXPR, this::visitBinExpr);
+        addVisit(BINARY_EXPR, JmmNode::getChildren, this::visitBinExpr);
         addVisit(CONST, this::visitConst);
-        addVisit(METHOD_CALL, this::visitMethodCall);
+        addVisit(METHOD_CALL, this::getArguments, this::visitMethodCall);
         addVisit(NEW_OBJECT, this::visitNewObject);
-        addVisit(NEW_ARRAY, this::visitNewArray);
-        addVisit(ARRAY_ACCESS, this::visitArrayAcess);
-        addVisit(LENGTH, this::visitLength);
-        addVisit(NOT_OP, this::visitNotOp);
-        addVisit(ARRAY_CALL, this::visitArrayCall);
-        setDefaultVisit(this::defaultVisit);
+        addVisit(NEW_ARRAY, JmmNode::getChildren, this::visitNewArray);
+        addVisit(ARRAY_ACCESS, JmmNode::getChildren, this::visitArrayAcess);
+        addVisit(LENGTH, JmmNode::getChildren, this::visitLength);
+        addVisit(NOT_OP, JmmNode::getChildren, this::visitNotOp);
+        addVisit(ARRAY_CALL, JmmNode::getChildren, this::visitArrayCall);
+        setDefaultVisit(JmmNode::getChildren, this::defaultVisit);
+    }
+
+    /**
+     * @return the arguments of a call whose code is generated here, with the object of the call as the first child
+     */
+    private List<JmmNode> getArguments(JmmNode node) {
+        if (node.get("ignore_first").equals("true") && !node.get("is_this").equals("true")) {
+            return node.getChildren().subList(1, node.getNumChildren());
+        }
+
+        return List.of();
     }
 
     private OllirExprResult visitNotOp(JmmNode node, Void unused) {
         StringBuilder computation = new StringBuilder();
 
 
-        computation.append(visit(node.getJmmChild(0)).getCode());
+        computation.append(getResult(node.getJmmChild(0)).getCode());
 
         var code = "!.bool " + computation;
         return new OllirExprResult(code, computation);
@@ -61,7 +87,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         for (int i = 0; i < node.getNumChildren(); i++) {
 
-            var nodeComputation = visit(node.getChild(0));
+            var nodeComputation = getResult(node.getChild(0));
 
             computation.append(nodeComputation.getComputation());
 
@@ -74,7 +100,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private OllirExprResult visitLength(JmmNode node, Void unused) {
         StringBuilder computation = new StringBuilder();
         var array = node.getChild(0);
-        var arrayData = visit(array);
+        var arrayData = getResult(array);
         var tempVar = OptUtils.getTemp();
         computation.append(arrayData.getComputation());
 
@@ -93,8 +119,8 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         var array = node.getChild(0);
         var index = node.getChild(1);
 
-        var arrayData = visit(array);
-        var indexData = visit(index);
+        var arrayData = getResult(array);
+        var indexData = getResult(index);
         var tempVar = OptUtils.getTemp();
 
         computation.append(arrayData.getComputation());
@@ -119,11 +145,11 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         StringBuilder computation = new StringBuilder();
 
-        var child = visit(node.getChild(0));
+        var child = getResult(node.getChild(0));
 
         computation.append(child.getComputation());
 
-        var length = visit(node.getChild(1));
+        var length = getResult(node.getChild(1));
 
         //computation.append(tempVar).append(".array.i32 := .array.i32 new(array, ").append(5).append(".i32).array.i32;\n");
 
@@ -183,24 +209,13 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                         .append(ollirType).append(";\n");
                 // missing arguments to pass;
             } else {
-                Type typeObject = new Type("", false);
-                for (var variable : table.getFields()) {
-                    if (variable.getName().equals(node.getChild(0).get("name"))) {
-                        typeObject = variable.getType();
-                    }
-                }
-
-                for (var variable : table.getLocalVariables(node.getAncestor(METHOD_DECL).get().get("name"))) {
-                    if (variable.getName().equals(node.getChild(0).get("name"))) {
-                        typeObject = variable.getType();
-                    }
-                }
+                Type typeObject = getObjectType(node.getChild(0));
 
                 var parameters = node.getChildren().subList(1, node.getNumChildren());
 
                 var parametersWithType = new ArrayList<String>();
                 for (var parameter : parameters) {
-                    var par = visit(parameter);
+                    var par = getResult(parameter);
                     if (!par.getComputation().isEmpty()) computation.append(par.getComputation());
                     parametersWithType.add(par.getCode());
                 }
@@ -220,18 +235,10 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             return new OllirExprResult(code, computation);
         }
 
-        for (var field : table.getFields()) {
-            if (field.getName().equals(node.getChild(0).get("name"))) {
-                computation.append("code");
-                return new OllirExprResult("code");
-            }
-        }
-
-        for (var varia : table.getLocalVariables(methodName)) {
-            if (varia.getName().equals(node.getChild(0).get("name"))) {
-                computation.append("code");
-                return new OllirExprResult("code");
-            }
+        var object = TypeUtils.resolve(table, methodName, node.getChild(0).get("name"));
+        if (object.isPresent() && object.get().getOrigin() != ResolvedSymbol.Origin.PARAM) {
+            computation.append("code");
+            return new OllirExprResult("code");
         }
 
         return null;
@@ -239,7 +246,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private OllirExprResult visitConst(JmmNode node, Void unused) {
         if (!node.get("name").equals("true") && !node.get("name").equals("false")) {
-            var intType = new Type(TypeUtils.getIntTypeName(), false);
+            var intType = TypeUtils.intType();
             String ollirIntType = OptUtils.toOllirType(intType);
             String code = node.get("name") + ollirIntType;
             return new OllirExprResult(code);
@@ -252,13 +259,11 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private OllirExprResult visitBinExpr(JmmNode node, Void unused) {
 
-        var lhs = visit(node.getJmmChild(0));
-        var rhs = visit(node.getJmmChild(1));
-
-        StringBuilder computation = new StringBuilder();
+        var lhs = getResult(node.getJmmChild(0));
+        var rhs = getResult(node.getJmmChild(1));
 
-        // code to compute the children
-        computation.append(lhs.getComputation());
+        // code to compute the children, the code of the left operand is not copied
+        StringBuilder computation = lhs.takeComputation();
         computation.append(rhs.getComputation());
 
         // code to compute self
@@ -276,8 +281,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                 .append(ASSIGN).append(resOllirType).append(SPACE)
                 .append(lhs.getCode()).append(SPACE);
 
-        Type type = TypeUtils.getExprType(node, table);
-        computation.append(node.get("name")).append(OptUtils.toOllirType(type)).append(SPACE)
+        computation.append(node.get("name")).append(resOllirType).append(SPACE)
                 .append(rhs.getCode()).append(END_STMT);
 
         return new OllirExprResult(code, computation);
@@ -287,7 +291,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private OllirExprResult visitVarRef(JmmNode node, Void unused) {
 
         var id = node.get("name");
-        Type type = TypeUtils.getExprType(node, table);
+        Type type = TypeUtils.getExprType(node, table, currentMethod);
         String ollirType = OptUtils.toOllirType(type);
 
         String code = id + ollirType;
@@ -295,12 +299,27 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         return new OllirExprResult(code);
     }
 
-    private OllirExprResult defaultVisit(JmmNode node, Void unused) {
-
-        for (var child : node.getChildren()) {
-            visit(child);
+    /**
+     * @param object the object of a call
+     * @return the type of the object, or the unknown type if it is not a variable (e.g. an imported class)
+     */
+    private Type getObjectType(JmmNode object) {
+        // annotated by the semantic analysis
+        var type = TypeUtils.getAnnotatedType(object);
+        if (type != null) {
+            return type;
         }
 
+        return TypeUtils.resolve(table, currentMethod, object.get("name"))
+                .map(ResolvedSymbol::getType)
+                .orElse(TypeUtils.unknownType());
+    }
+
+    /**
+     * Default visitor. The children are visited before, as its dependencies.
+     */
+    private OllirExprResult defaultVisit(JmmNode node, Void unused) {
+
         return OllirExprResult.EMPTY;
     }
 
@@ -4,8 +4,11 @@ public class OllirExprResult {
 
     public static final OllirExprResult EMPTY = new OllirExprResult("", "");
 
-    private final String computation;
     private final String code;
+    private String computation;
+    // the computation, while it has not been turned into a String
+    private StringBuilder computationBuilder;
+    private boolean taken;
 
     public OllirExprResult(String code, String computation) {
         this.code = code;
@@ -17,13 +20,50 @@ public class OllirExprResult {
     }
 
     public OllirExprResult(String code, StringBuilder computation) {
-        this(code, computation.toString());
+        this.code = code;
+        this.computationBuilder = computation;
     }
 
     public String getComputation() {
+        checkNotTaken();
+
+        if (computationBuilder != null) {
+            computation = computationBuilder.toString();
+            computationBuilder = null;
+        }
+
         return computation;
     }
 
+    /**
+     * Gives the computation to the caller, to append more code to it without copying it (e.g. in a long chain of
+     * binary expressions, copying the computation of the left operand every time takes quadratic time). The result
+     * cannot be used afterwards.
+     *
+     * @return
+     */
+    public StringBuilder takeComputation() {
+        checkNotTaken();
+
+        // the shared empty result is never taken
+        if (this == EMPTY) {
+            return new StringBuilder();
+        }
+
+        var builder = computationBuilder != null ? computationBuilder : new StringBuilder(computation);
+        computation = null;
+        computationBuilder = null;
+        taken = true;
+
+        return builder;
+    }
+
+    private void checkNotTaken() {
+        if (taken) {
+            throw new IllegalStateException("The computation of '" + code + "' was already taken");
+        }
+    }
+
     public String getCode() {
         return code;
     }
@@ -31,7 +71,7 @@ public class OllirExprResult {
     @Override
     public String toString() {
         return "OllirNodeResult{" +
-                "computation='" + computation + '\'' +
+                "computation='" + (taken ? "<taken>" : getComputation()) + '\'' +
                 ", code='" + code + '\'' +
                 '}';
     }
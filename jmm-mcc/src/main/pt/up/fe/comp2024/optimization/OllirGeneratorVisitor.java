@@ -2,8 +2,8 @@ package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.BottomUpKindVisitor;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
@@ -15,8 +15,10 @@ import static pt.up.fe.comp2024.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are not expressions.
+ * <p>
+ * The code of the nested statements is generated first, without recursion, so blocks of any depth can be compiled.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class OllirGeneratorVisitor extends BottomUpKindVisitor<Void, String> {
 
     public static final List<String> ARITHMETIC_OPERATORS = Arrays.asList("*", "/", "-", "+", "<");
     public static final List<String> BOOLEAN_OPERATORS = Arrays.asList("&&", "||", "!");
@@ -38,29 +40,50 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     @Override
     protected void buildVisitor() {
 
-        addVisit(PROGRAM, this::visitProgram);
-        addVisit(CLASS_DECL, this::visitClass);
-        addVisit(METHOD_DECL, this::visitMethodDecl);
+        addVisit(PROGRAM, JmmNode::getChildren, this::visitProgram);
+        addVisit(CLASS_DECL, JmmNode::getChildren, this::visitClass);
+        addVisit(METHOD_DECL, this::getMethodStmts, this::visitMethodDecl);
         addVisit(PARAM, this::visitParam);
         addVisit(RET_STMT, this::visitRetStmt);
-        addVisit(IF_STMT, this::visitIfStmt);
-        addVisit(WHILE_STMT, this::visitWhileStmt);
+        addVisit(IF_STMT, node -> List.of(node.getJmmChild(2), node.getJmmChild(1)), this::visitIfStmt);
+        addVisit(WHILE_STMT, node -> node.getNumChildren() > 1 ? List.of(node.getJmmChild(1)) : List.of(),
+                this::visitWhileStmt);
         addVisit(ASSIGN_STMT, this::visitAssignStmt);
         addVisit(IMPORT_DECLARATION, this::visitImpDecl);
         addVisit(VAR_DECL, this::visitVarDecl);
         addVisit(METHOD_CALL, this::visitMethodCall);
         addVisit(NEW_OBJECT, this::visitNewObject);
         addVisit(ARRAY_ACCESS, this::visitArrayAccess);
-        addVisit(PAR_STMT, this::visitParStmt);
+        addVisit(PAR_STMT, node -> List.of(node.getChild(0)), this::visitParStmt);
         addVisit(NEW_ARRAY, this::visitNewArray);
-        setDefaultVisit(this::defaultVisit);
-        setDefaultVisit(this::defaultVisit);
+        setDefaultVisit(JmmNode::getChildren, this::defaultVisit);
+    }
+
+    /**
+     * @return the statements of the method, or their expression in the case of expression statements
+     */
+    private List<JmmNode> getMethodStmts(JmmNode node) {
+        var stmts = new ArrayList<JmmNode>();
+
+        var afterParam = node.getChildren(PARAM).size() + 1;
+        for (int i = afterParam; i < node.getNumChildren(); i++) {
+            var child = node.getJmmChild(i);
+            if (!child.getKind().equals("VarDecl")) {
+                if (child.getKind().equals("Expression")) {
+                    stmts.add(child.getChild(0));
+                } else {
+                    stmts.add(child);
+                }
+            }
+        }
+
+        return stmts;
     }
 
     private String visitParStmt(JmmNode node, Void unused) {
         StringBuilder code = new StringBuilder();
 
-        var par = visit(node.getChild(0));
+        var par = getResult(node.getChild(0));
         code.append(par);
 
         return code.toString();
@@ -271,11 +294,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         String falseLabel = "endif" + labelCounter++;
 
         code.append("if (").append(expr.getCode()).append(") goto ").append(trueLabel).append(";\n");
-        var elsecode = visit(node.getJmmChild(2));
+        var elsecode = getResult(node.getJmmChild(2));
         code.append(elsecode);
         code.append("goto ").append(falseLabel).append(";\n");
         code.append(trueLabel).append(":\n");
-        var ifcode = visit(node.getChild(1));
+        var ifcode = getResult(node.getChild(1));
         code.append(ifcode);
         code.append(falseLabel).append(":\n");
 
@@ -306,7 +329,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         code.append(trueLabel).append(":\n");
         if (node.getNumChildren() > 1) {
-            code.append(visit(node.getJmmChild(1), unused));
+            code.append(getResult(node.getJmmChild(1)));
         }
         code.append("goto ").append(conditionlabel).append(";\n");
         code.append(falseLabel).append(":\n");
@@ -343,7 +366,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             code.append("public ");
         }
 
-        if (node.get("isStatic").equals("true")) {
+        if (NodeUtils.getBooleanAttribute(node, "isStatic", "false")) {
             code.append("static ");
         }
 
@@ -352,12 +375,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(name);
 
         // param
-        var paramCode = visit(node.getJmmChild(1));
         List<JmmNode> ParamNodes = node.getChildren(PARAM);
         code.append("(");
         for (var i = 0; i < ParamNodes.size(); i++) {
             JmmNode P = ParamNodes.get(i);
-            paramCode = visitParam(P, null);
+            var paramCode = visitParam(P, null);
             code.append(paramCode);
             if (i != ParamNodes.size() - 1) {
                 code.append(", ");
@@ -372,19 +394,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
 
         // rest of its children stmts
-        var afterParam = ParamNodes.size() + 1;
-        var params = node.getChildren();
-        for (int i = afterParam; i < node.getNumChildren(); i++) {
-            var child = node.getJmmChild(i);
-            if (!child.getKind().equals("VarDecl")) {
-                if (child.getKind().equals("Expression")) {
-                    var childCode = visit(child.getChild(0));
-                    code.append(childCode);
-                } else {
-                    var childCode = visit(child);
-                    code.append(childCode);
-                }
-            }
+        for (var stmt : getMethodStmts(node)) {
+            code.append(getResult(stmt));
         }
 
         if (node.getChild(0).get("name").equals("void")) {
@@ -417,7 +428,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         var needNl = true;
 
         for (var child : node.getChildren()) {
-            var result = visit(child);
+            var result = getResult(child);
             /*
             if (METHOD_DECL.check(child) && needNl) {
                 code.append(NL);
@@ -451,7 +462,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         StringBuilder code = new StringBuilder();
 
         node.getChildren().stream()
-                .map(this::visit)
+                .map(this::getResult)
                 .forEach(code::append);
 
         System.out.println(code);
@@ -459,7 +470,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     /**
-     * Default visitor. Visits every child node and return an empty string.
+     * Default visitor. Visits every child node (as its dependencies) and return an empty string.
      *
      * @param node
      * @param unused
@@ -467,10 +478,6 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
      */
     private String defaultVisit(JmmNode node, Void unused) {
 
-        for (var child : node.getChildren()) {
-            visit(child);
-        }
-
         return "";
     }
 }
@@ -2,11 +2,15 @@ package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static pt.up.fe.comp2024.ast.Kind.TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
+    // shared by every compilation running in the same JVM (e.g. batch mode)
+    private static final AtomicInteger tempNumber = new AtomicInteger(-1);
 
     public static String getTemp() {
 
@@ -20,15 +24,14 @@ public class OptUtils {
 
     public static int getNextTempNum() {
 
-        tempNumber += 1;
-        return tempNumber;
+        return tempNumber.incrementAndGet();
     }
 
     public static String toOllirType(JmmNode typeNode) {
         TYPE.checkOrThrow(typeNode);
 
         String typeName = typeNode.get("name");
-        boolean isArray = typeNode.get("isArray").equals("true");
+        boolean isArray = NodeUtils.getBooleanAttribute(typeNode, "isArray", "false");
 
         return toOllirType(typeName, isArray);
     }
@@ -1,13 +1,13 @@
 package pt.up.fe.comp2024.optimization_jasmin;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
+import pt.up.fe.comp2024.ast.PostorderKindVisitor;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.Map;
 
-public class JasminExprGeneratorVisitor extends PostorderJmmVisitor<StringBuilder, Void> {
+public class JasminExprGeneratorVisitor extends PostorderKindVisitor<StringBuilder, Void> {
 
     private static final String NL = "\n";
 
@@ -0,0 +1,246 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Updates the AST of a program after a small edit (e.g. a keystroke in an editor), by parsing again only the smallest
+ * field, method or local variable declaration that contains the edit and splicing the new subtree into the old AST.
+ * <p>
+ * If no declaration contains the whole edit, or the edited declaration no longer parses on its own (e.g. the edit
+ * closed the method early), the whole program is parsed again, so the result is always the same as a full parse.
+ * <p>
+ * The AST of the previous result is updated in place: the positions of the nodes after the edit are shifted, and the
+ * old subtree is replaced. Not thread-safe, use one instance per thread.
+ */
+public class JmmIncrementalParser {
+
+    private final JmmParserImpl parser;
+    private JmmNode lastReparsed;
+
+    public JmmIncrementalParser(JmmParserImpl parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @return the root of the subtree parsed again by the last call to reparse, or null if the whole program was
+     * parsed again
+     */
+    public JmmNode getLastReparsed() {
+        return lastReparsed;
+    }
+
+    /**
+     * @param previous     result of parsing the code before the edit, its AST is reused
+     * @param previousCode the code before the edit
+     * @param edit
+     * @param config
+     * @return the result of parsing the code after the edit
+     */
+    public JmmParserResult reparse(JmmParserResult previous, String previousCode, TextEdit edit,
+                                   Map<String, String> config) {
+        lastReparsed = null;
+        var code = edit.apply(previousCode);
+
+        var root = previous.getRootNode();
+        if (root != null && !ReportUtils.anyError(previous.getReports())) {
+            var lineStarts = getLineStarts(previousCode);
+
+            for (var candidate : getCandidates(root, edit, lineStarts)) {
+                var node = reparse(candidate, previousCode, code, edit, lineStarts, config);
+                if (node != null) {
+                    lastReparsed = node;
+                    return new JmmParserResult(root, new ArrayList<>(), config);
+                }
+            }
+        }
+
+        return parser.parse(code, config);
+    }
+
+    /**
+     * @return the declarations that contain the whole edit, the smallest first
+     */
+    private List<JmmNode> getCandidates(JmmNode root, TextEdit edit, int[] lineStarts) {
+        var candidates = new ArrayList<JmmNode>();
+
+        var classDecl = root.getChildren("ClassDecl");
+        if (classDecl.isEmpty()) {
+            return candidates;
+        }
+
+        for (var member : classDecl.get(0).getChildren()) {
+            if (!member.getKind().equals("VarDecl") && !member.getKind().equals("MethodDecl")) {
+                continue;
+            }
+            if (!contains(member, edit, lineStarts)) {
+                continue;
+            }
+
+            for (var local : member.getChildren("VarDecl")) {
+                if (contains(local, edit, lineStarts)) {
+                    candidates.add(local);
+                }
+            }
+            candidates.add(member);
+            break;
+        }
+
+        return candidates;
+    }
+
+    private boolean contains(JmmNode node, TextEdit edit, int[] lineStarts) {
+        return getStartOffset(node, lineStarts) <= edit.getStart() && edit.getEnd() <= getEndOffset(node, lineStarts);
+    }
+
+    /**
+     * @return the new node, or null if the edited declaration could not be parsed on its own
+     */
+    private JmmNode reparse(JmmNode oldNode, String previousCode, String code, TextEdit edit, int[] lineStarts,
+                            Map<String, String> config) {
+        int start = getStartOffset(oldNode, lineStarts);
+        int oldEnd = getEndOffset(oldNode, lineStarts);
+
+        // both rules end with a single-char token, which gives the end of the declaration
+        char last = previousCode.charAt(oldEnd - 1);
+        if (last != '}' && last != ';') {
+            return null;
+        }
+
+        var span = code.substring(start, oldEnd + edit.getLengthDelta());
+        var rule = Character.toLowerCase(oldNode.getKind().charAt(0)) + oldNode.getKind().substring(1);
+        var result = parser.parse(span, rule, config);
+
+        var newNode = result.getRootNode();
+        if (newNode == null || ReportUtils.anyError(result.getReports()) || !newNode.getKind().equals(oldNode.getKind())) {
+            return null;
+        }
+
+        // positions of the new subtree are relative to the start of the declaration
+        int line = getPosition(oldNode, NodePosition.LINE_START);
+        int column = getPosition(oldNode, NodePosition.COL_START);
+        translate(newNode, line, column);
+
+        // the nodes after the declaration move as much as its end moved
+        var shift = new Shift(oldNode, span, line, column);
+        JmmNode child = oldNode;
+        for (var parent = oldNode.getParent(); parent != null; parent = parent.getParent()) {
+            for (int i = child.getIndexOfSelf() + 1; i < parent.getNumChildren(); i++) {
+                shift.apply(parent.getJmmChild(i));
+            }
+            shift.apply(parent, NodePosition.LINE_END, NodePosition.COL_END);
+            child = parent;
+        }
+
+        oldNode.getParent().setChild(newNode, oldNode.getIndexOfSelf());
+
+        return newNode;
+    }
+
+    private void translate(JmmNode node, int line, int column) {
+        translate(node, line, column, NodePosition.LINE_START, NodePosition.COL_START);
+        translate(node, line, column, NodePosition.LINE_END, NodePosition.COL_END);
+
+        for (var child : node.getChildren()) {
+            translate(child, line, column);
+        }
+    }
+
+    private void translate(JmmNode node, int line, int column, NodePosition lineKey, NodePosition columnKey) {
+        int nodeLine = getPosition(node, lineKey);
+        if (nodeLine == 1) {
+            setPosition(node, columnKey, getPosition(node, columnKey) + column);
+        }
+        setPosition(node, lineKey, nodeLine + line - 1);
+    }
+
+    /**
+     * Moves the positions after the old declaration by the difference between the end of the declaration before and
+     * after the edit (which can differ from its last token, e.g. after adding a line break).
+     */
+    private static class Shift {
+
+        private final int oldLine;
+        private final int lineDelta;
+        private final int columnDelta;
+
+        private Shift(JmmNode oldNode, String span, int line, int column) {
+            // position after the last char of the old declaration
+            this.oldLine = getPosition(oldNode, NodePosition.LINE_END);
+            int oldColumn = getPosition(oldNode, NodePosition.COL_END) + 1;
+
+            // and of the new one
+            int lastBreak = span.lastIndexOf('\n');
+            int newLine = line + (int) span.chars().filter(c -> c == '\n').count();
+            int newColumn = lastBreak == -1 ? column + span.length() : span.length() - lastBreak - 1;
+
+            this.lineDelta = newLine - oldLine;
+            this.columnDelta = newColumn - oldColumn;
+        }
+
+        private void apply(JmmNode node) {
+            apply(node, NodePosition.LINE_START, NodePosition.COL_START);
+            apply(node, NodePosition.LINE_END, NodePosition.COL_END);
+
+            for (var child : node.getChildren()) {
+                apply(child);
+            }
+        }
+
+        private void apply(JmmNode node, NodePosition lineKey, NodePosition columnKey) {
+            int line = getPosition(node, lineKey);
+            if (line == oldLine) {
+                // on the same line as the end of the declaration
+                setPosition(node, columnKey, getPosition(node, columnKey) + columnDelta);
+            }
+            setPosition(node, lineKey, line + lineDelta);
+        }
+    }
+
+    private static int getPosition(JmmNode node, NodePosition key) {
+        return Integer.parseInt(node.get(key.getKey()));
+    }
+
+    private static void setPosition(JmmNode node, NodePosition key, int value) {
+        node.put(key.getKey(), Integer.toString(value));
+    }
+
+    private static int getStartOffset(JmmNode node, int[] lineStarts) {
+        return lineStarts[getPosition(node, NodePosition.LINE_START) - 1] + getPosition(node, NodePosition.COL_START);
+    }
+
+    /**
+     * @return the offset after the last char of the node, which ends with a single-char token
+     */
+    private static int getEndOffset(JmmNode node, int[] lineStarts) {
+        return lineStarts[getPosition(node, NodePosition.LINE_END) - 1] + getPosition(node, NodePosition.COL_END) + 1;
+    }
+
+    /**
+     * @return the offset where each line starts, lines end with '\n' as in the lexer
+     */
+    private static int[] getLineStarts(String code) {
+        int lines = 1;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+
+        var lineStarts = new int[lines];
+        int line = 1;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                lineStarts[line++] = i + 1;
+            }
+        }
+
+        return lineStarts;
+    }
+}
@@ -0,0 +1,241 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp2024.JavammLexer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written lexer for the tokens of the Javamm grammar, used by {@link JmmPrattParser}.
+ * <p>
+ * Follows the rules of the generated {@link JavammLexer} (longest match, keywords before identifiers) and uses the same
+ * token types, lines and columns. Inputs where the generated lexer would report an error, or would split an unclosed
+ * comment into operators, throw a {@link JmmSyntaxException} instead.
+ */
+public class JmmLexer {
+
+    private static final Map<String, Integer> KEYWORDS = new HashMap<>();
+
+    static {
+        KEYWORDS.put("int", JavammLexer.INT);
+        KEYWORDS.put("true", JavammLexer.TRUE);
+        KEYWORDS.put("false", JavammLexer.FALSE);
+        KEYWORDS.put("boolean", JavammLexer.BOOL);
+        KEYWORDS.put("class", JavammLexer.CLASS);
+        KEYWORDS.put("public", JavammLexer.PUBLIC);
+        KEYWORDS.put("return", JavammLexer.RETURN);
+        KEYWORDS.put("import", JavammLexer.IMPORT);
+        KEYWORDS.put("if", JavammLexer.IF);
+        KEYWORDS.put("else", JavammLexer.ELSE);
+        KEYWORDS.put("while", JavammLexer.WHILE);
+        KEYWORDS.put("extends", JavammLexer.EXTENDS);
+        KEYWORDS.put("static", JavammLexer.STATIC);
+        KEYWORDS.put("new", JavammLexer.NEW);
+        KEYWORDS.put("void", JavammLexer.VOID);
+        KEYWORDS.put("main", JavammLexer.MAIN);
+        KEYWORDS.put("length", JavammLexer.LENGTH);
+        KEYWORDS.put("this", JavammLexer.THIS);
+    }
+
+    public static class Token {
+
+        private final int type;
+        private final String text;
+        private final int line;
+        private final int column;
+
+        private Token(int type, String text, int line, int column) {
+            this.type = type;
+            this.text = text;
+            this.line = line;
+            this.column = column;
+        }
+
+        /**
+         * @return one of the token types of {@link JavammLexer}, or {@link org.antlr.v4.runtime.Token#EOF}
+         */
+        public int getType() {
+            return type;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+    }
+
+    private final String code;
+    private int index;
+    private int line;
+    private int column;
+
+    private JmmLexer(String code) {
+        this.code = code;
+        this.index = 0;
+        this.line = 1;
+        this.column = 0;
+    }
+
+    /**
+     * @param code
+     * @return the tokens of the code, ending with an EOF token
+     */
+    public static List<Token> tokenize(String code) {
+        return new JmmLexer(code).tokenize();
+    }
+
+    private List<Token> tokenize() {
+        // a rough guess, avoids most of the resizing
+        var tokens = new ArrayList<Token>(code.length() / 3 + 1);
+
+        while (skipIgnored()) {
+            int start = index;
+            int startLine = line;
+            int startColumn = column;
+
+            int type = nextToken();
+            tokens.add(new Token(type, code.substring(start, index), startLine, startColumn));
+        }
+
+        tokens.add(new Token(org.antlr.v4.runtime.Token.EOF, "<EOF>", line, column));
+
+        return tokens;
+    }
+
+    /**
+     * Skips whitespace and comments.
+     *
+     * @return true if there is a token left
+     */
+    private boolean skipIgnored() {
+        while (index < code.length()) {
+            char c = code.charAt(index);
+
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                advance(1);
+            } else if (code.startsWith("//", index)) {
+                int end = code.indexOf('\n', index + 2);
+                if (end == -1) {
+                    throw error("Line comment without a line break");
+                }
+                advance(end + 1 - index);
+            } else if (code.startsWith("/*", index)) {
+                int end = code.indexOf("*/", index + 2);
+                if (end == -1) {
+                    throw error("Unclosed comment");
+                }
+                advance(end + 2 - index);
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the token at the current position.
+     *
+     * @return its type
+     */
+    private int nextToken() {
+        char c = code.charAt(index);
+
+        if (isIdStart(c)) {
+            int start = index;
+            while (index < code.length() && isIdStart(code.charAt(index))) {
+                advance(1);
+            }
+            while (index < code.length() && isIdPart(code.charAt(index))) {
+                advance(1);
+            }
+            return KEYWORDS.getOrDefault(code.substring(start, index), JavammLexer.ID);
+        }
+
+        if (c == '0') {
+            advance(1);
+            return JavammLexer.INTEGER;
+        }
+
+        if (c >= '1' && c <= '9') {
+            while (index < code.length() && isDigit(code.charAt(index))) {
+                advance(1);
+            }
+            return JavammLexer.INTEGER;
+        }
+
+        if (code.startsWith("...", index)) {
+            advance(3);
+            return JavammLexer.MULTIPLE;
+        }
+        if (code.startsWith("&&", index)) {
+            advance(2);
+            return JavammLexer.AND;
+        }
+        if (code.startsWith("||", index)) {
+            advance(2);
+            return JavammLexer.OR;
+        }
+
+        int type = switch (c) {
+            case '=' -> JavammLexer.EQUALS;
+            case '*' -> JavammLexer.MUL;
+            case '+' -> JavammLexer.ADD;
+            case '-' -> JavammLexer.MINUS;
+            case '/' -> JavammLexer.DIV;
+            case '<' -> JavammLexer.LESS;
+            case '!' -> JavammLexer.NOT;
+            case ';' -> JavammLexer.SEMI;
+            case '{' -> JavammLexer.LCURLY;
+            case '}' -> JavammLexer.RCURLY;
+            case '(' -> JavammLexer.LPAREN;
+            case ')' -> JavammLexer.RPAREN;
+            case '[' -> JavammLexer.LSPAREN;
+            case ']' -> JavammLexer.RSPAREN;
+            case '.' -> JavammLexer.DOT;
+            case ',' -> JavammLexer.COMMA;
+            default -> throw error("Unexpected character '" + c + "'");
+        };
+
+        advance(1);
+        return type;
+    }
+
+    private void advance(int count) {
+        for (int i = 0; i < count; i++) {
+            // same as the ANTLR lexer, only '\n' starts a new line
+            if (code.charAt(index) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+            index++;
+        }
+    }
+
+    private JmmSyntaxException error(String message) {
+        return new JmmSyntaxException(message, line, column);
+    }
+
+    private static boolean isIdStart(char c) {
+        return c == '$' || c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isIdPart(char c) {
+        return c == '_' || isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
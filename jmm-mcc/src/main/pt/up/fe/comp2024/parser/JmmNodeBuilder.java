@@ -0,0 +1,211 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.JavammParser.*;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the parse tree of the Javamm grammar into the JmmNode AST in a single pass, without reflection.
+ * <p>
+ * Builds exactly the same tree as the generic {@link pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter} of the
+ * library (same kinds, hierarchies, positions and attributes, with the same value types), so it must be updated
+ * whenever a rule, a label or a local of the grammar changes. The nodes are {@link CompactJmmNode}s, which keep the
+ * positions, names and locals in fields but expose them with the same types.
+ */
+public class JmmNodeBuilder {
+
+    /**
+     * Kind and hierarchy of the node created for each context class, the most specific kind first.
+     */
+    private static final Map<Class<? extends ParserRuleContext>, List<String>> HIERARCHIES = new HashMap<>();
+
+    static {
+        HIERARCHIES.put(ProgramContext.class, List.of("Program"));
+        HIERARCHIES.put(ImportDeclarationContext.class, List.of("ImportDeclaration"));
+        HIERARCHIES.put(ClassDeclContext.class, List.of("ClassDecl"));
+        HIERARCHIES.put(VarDeclContext.class, List.of("VarDecl"));
+        HIERARCHIES.put(TypeContext.class, List.of("Type"));
+        HIERARCHIES.put(MethodDeclContext.class, List.of("MethodDecl"));
+        HIERARCHIES.put(ParamContext.class, List.of("Param"));
+        HIERARCHIES.put(ParStmtContext.class, List.of("ParStmt", "Stmt"));
+        HIERARCHIES.put(IfStmtContext.class, List.of("IfStmt", "Stmt"));
+        HIERARCHIES.put(WhileStmtContext.class, List.of("WhileStmt", "Stmt"));
+        HIERARCHIES.put(ExpressionContext.class, List.of("Expression", "Stmt"));
+        HIERARCHIES.put(AssignStmtContext.class, List.of("AssignStmt", "Stmt"));
+        HIERARCHIES.put(RetStmtContext.class, List.of("RetStmt", "Stmt"));
+        HIERARCHIES.put(BinaryOpContext.class, List.of("BinaryOp"));
+        HIERARCHIES.put(ParanthesesContext.class, List.of("Parantheses", "Expr"));
+        HIERARCHIES.put(NotOpContext.class, List.of("NotOp", "Expr"));
+        HIERARCHIES.put(LengthContext.class, List.of("Length", "Expr"));
+        HIERARCHIES.put(MethodCallContext.class, List.of("MethodCall", "Expr"));
+        HIERARCHIES.put(NewObjectContext.class, List.of("NewObject", "Expr"));
+        HIERARCHIES.put(NewArrayContext.class, List.of("NewArray", "Expr"));
+        HIERARCHIES.put(ArrayAccessContext.class, List.of("ArrayAccess", "Expr"));
+        HIERARCHIES.put(BinaryExprContext.class, List.of("BinaryExpr", "Expr"));
+        HIERARCHIES.put(ArrayCallContext.class, List.of("ArrayCall", "Expr"));
+        HIERARCHIES.put(ConstContext.class, List.of("Const", "Expr"));
+        HIERARCHIES.put(VarRefExprContext.class, List.of("VarRefExpr", "Expr"));
+        HIERARCHIES.put(ThisExprContext.class, List.of("ThisExpr", "Expr"));
+    }
+
+    private final Parser parser;
+
+    private JmmNodeBuilder(Parser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @param node   root of the parse tree
+     * @param parser the parser that created the tree, used to get the tokens of the node positions
+     * @return the root of the AST
+     */
+    public static JmmNode convert(ParseTree node, Parser parser) {
+        if (!(node instanceof ParserRuleContext context)) {
+            throw new RuntimeException("Expected the root to be a rule context, got '" + node.getClass() + "'");
+        }
+
+        return new JmmNodeBuilder(parser).convert(context);
+    }
+
+    /**
+     * Converts the tree with a stack of its own instead of recursion, so that deep trees (e.g. a long chain of binary
+     * expressions) do not overflow the Java stack.
+     */
+    private CompactJmmNode convert(ParserRuleContext rootContext) {
+        var root = newNode(rootContext);
+
+        var contexts = new ArrayDeque<ParserRuleContext>();
+        var parents = new ArrayDeque<CompactJmmNode>();
+        pushChildren(rootContext, root, contexts, parents);
+
+        while (!contexts.isEmpty()) {
+            var context = contexts.pop();
+            var node = newNode(context);
+
+            // children are pushed in reverse, so each node is added after its previous siblings
+            parents.pop().add(node);
+            pushChildren(context, node, contexts, parents);
+        }
+
+        return root;
+    }
+
+    private void pushChildren(ParserRuleContext context, CompactJmmNode node, Deque<ParserRuleContext> contexts,
+                              Deque<CompactJmmNode> parents) {
+        if (context.children == null) {
+            return;
+        }
+
+        // tokens do not become nodes
+        for (int i = context.children.size() - 1; i >= 0; i--) {
+            if (context.children.get(i) instanceof ParserRuleContext childContext) {
+                contexts.push(childContext);
+                parents.push(node);
+            }
+        }
+    }
+
+    private CompactJmmNode newNode(ParserRuleContext context) {
+        var hierarchy = HIERARCHIES.get(context.getClass());
+        if (hierarchy == null) {
+            throw new RuntimeException("No AST node for '" + context.getClass().getSimpleName()
+                    + "', update JmmNodeBuilder after changing the grammar");
+        }
+
+        var node = new CompactJmmNode(Kind.fromString(hierarchy.get(0)));
+        node.setHierarchy(hierarchy);
+
+        addPosition(node, context);
+        addAttributes(node, context);
+
+        return node;
+    }
+
+    private void addPosition(CompactJmmNode node, ParserRuleContext context) {
+        var interval = context.getSourceInterval();
+        var start = parser.getTokenStream().get(interval.a);
+        var end = parser.getTokenStream().get(interval.b);
+
+        node.setPosition(NodePosition.LINE_START, start.getLine());
+        node.setPosition(NodePosition.COL_START, start.getCharPositionInLine());
+        node.setPosition(NodePosition.LINE_END, end.getLine());
+        node.setPosition(NodePosition.COL_END, end.getCharPositionInLine());
+    }
+
+    /**
+     * Adds the labels and locals of the rule, in the same order as the public fields of the context classes (most
+     * specific class first). Labels without a token are skipped, locals are kept as Booleans.
+     */
+    private void addAttributes(CompactJmmNode node, ParserRuleContext context) {
+        if (context instanceof ImportDeclarationContext importDecl) {
+            putToken(node, "ID", importDecl.ID);
+            var lib = new ArrayList<String>(importDecl.lib.size());
+            for (var token : importDecl.lib) {
+                lib.add(token.getText());
+            }
+            node.putObject("lib", lib);
+        } else if (context instanceof ClassDeclContext classDecl) {
+            putToken(node, "name", classDecl.name);
+            putToken(node, "superClass", classDecl.superClass);
+        } else if (context instanceof VarDeclContext varDecl) {
+            putToken(node, "name", varDecl.name);
+        } else if (context instanceof TypeContext type) {
+            node.putObject("isArray", type.isArray);
+            putToken(node, "name", type.name);
+        } else if (context instanceof MethodDeclContext methodDecl) {
+            node.putObject("isPublic", methodDecl.isPublic);
+            node.putObject("isStatic", methodDecl.isStatic);
+            putToken(node, "name", methodDecl.name);
+        } else if (context instanceof ParamContext param) {
+            node.putObject("isVarArg", param.isVarArg);
+            putToken(node, "name", param.name);
+        } else if (context instanceof BinaryOpContext binaryOp) {
+            putToken(node, "name", binaryOp.name);
+        } else if (context instanceof ExprContext expr) {
+            putToken(node, "name", getExprName(expr));
+            node.putObject("isVirtual", expr.isVirtual);
+            node.putObject("ignore_first", expr.ignore_first);
+            node.putObject("is_this", expr.is_this);
+        }
+    }
+
+    private Token getExprName(ExprContext expr) {
+        if (expr instanceof BinaryExprContext binaryExpr) {
+            return binaryExpr.name;
+        }
+        if (expr instanceof MethodCallContext methodCall) {
+            return methodCall.name;
+        }
+        if (expr instanceof VarRefExprContext varRef) {
+            return varRef.name;
+        }
+        if (expr instanceof ConstContext constant) {
+            return constant.name;
+        }
+        if (expr instanceof ThisExprContext thisExpr) {
+            return thisExpr.name;
+        }
+
+        // the other expressions have no label
+        return null;
+    }
+
+    private void putToken(CompactJmmNode node, String attribute, Token token) {
+        if (token != null) {
+            node.put(attribute, token.getText());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+
+import java.util.List;
+
+/**
+ * Lexer and parser that are reused across compilations, instead of building new ones for each input.
+ * <p>
+ * The prediction DFAs of the generated lexer and parser are static, so they are shared by every context in the JVM
+ * and keep growing as more code is parsed. Reusing the context avoids allocating the recognizers and their
+ * interpreters again.
+ * <p>
+ * Not thread-safe, use one context per thread.
+ */
+public class JmmParserContext {
+
+    private final JavammLexer lexer;
+    private final JavammParser parser;
+    private final List<String> ignoreList;
+
+    public JmmParserContext() {
+        this.lexer = new JavammLexer(new ANTLRInputStream(""));
+        this.parser = new JavammParser(new CommonTokenStream(lexer));
+        this.ignoreList = AntlrParser.getIgnoreList(parser);
+    }
+
+    public JavammLexer getLexer() {
+        return lexer;
+    }
+
+    public JavammParser getParser() {
+        return parser;
+    }
+
+    /**
+     * @return the kinds of nodes the grammar asks to remove from the AST
+     */
+    public List<String> getIgnoreList() {
+        return ignoreList;
+    }
+
+    /**
+     * Prepares the lexer and the parser to read the given input, from its start.
+     *
+     * @param input
+     * @param predictionMode SLL to bail out at the first syntax error, LL to recover from errors
+     */
+    public void reset(CharStream input, PredictionMode predictionMode) {
+        input.seek(0);
+        lexer.setInputStream(input);
+        // a new token stream, in this version of ANTLR setTokenSource does not clear its end-of-file flag
+        // (setTokenStream also resets the parser)
+        parser.setTokenStream(new CommonTokenStream(lexer));
+
+        lexer.removeErrorListeners();
+        parser.removeErrorListeners();
+        parser.getInterpreter().setPredictionMode(predictionMode);
+        parser.setErrorHandler(predictionMode == PredictionMode.SLL ? new BailErrorStrategy() : new DefaultErrorStrategy());
+    }
+}
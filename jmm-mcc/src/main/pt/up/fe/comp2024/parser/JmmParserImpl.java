@@ -1,13 +1,23 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsSystem;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -23,33 +33,179 @@ import java.util.Map;
  * specific language governing permissions and limitations under the License. under the License.
  */
 
+/**
+ * Parses in two stages: first with the faster SLL prediction mode, which bails out at the first syntax error, and
+ * only if that fails again with the full LL prediction mode, which also produces the error reports.
+ * <p>
+ * SLL is enough for almost every valid program and, when it succeeds, gives the same tree as LL, so the result and the
+ * reports are the same either way.
+ * <p>
+ * The parse tree is converted by {@link JmmNodeBuilder}, which builds the same AST as the generic converter of the
+ * library, without reflection.
+ * <p>
+ * The lexer and the parser are reused between calls (see {@link JmmParserContext}), so use one instance per thread.
+ */
 public class JmmParserImpl implements JmmParser {
 
+    private final JmmParserContext context;
+    private PredictionMode lastPredictionMode;
+
+    public JmmParserImpl() {
+        this.context = new JmmParserContext();
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
     }
 
+    /**
+     * @return the prediction mode that produced the result of the last call to parse (SLL or LL), or null if nothing
+     * was parsed yet
+     */
+    public PredictionMode getLastPredictionMode() {
+        return lastPredictionMode;
+    }
+
+    /**
+     * Parses the given code in both prediction modes, so that the prediction DFAs (which are shared by all parsers in
+     * the JVM) are already built when the first real input arrives.
+     *
+     * @param code should use every construct of the language
+     */
+    public void warmUp(String code) {
+        var config = new HashMap<String, String>();
+        var input = new ANTLRInputStream(code);
+
+        // build the states of both prediction modes, the LL fallback also needs them
+        parseSll(input, getDefaultRule(), config);
+        parseLl(input, getDefaultRule(), config);
+
+        lastPredictionMode = null;
+    }
+
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
+
+    /**
+     * Parses the code from any input stream, e.g. a {@link MappedCharStream} to avoid having the source in the heap.
+     *
+     * @param input
+     * @param config
+     * @return
+     */
+    public JmmParserResult parse(CharStream input, Map<String, String> config) {
+        return parse(input, getDefaultRule(), config);
+    }
+
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
 
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+            var sllResult = parseSll(input, startingRule, config);
+            if (sllResult != null) {
+                lastPredictionMode = PredictionMode.SLL;
+                return sllResult;
+            }
 
+            lastPredictionMode = PredictionMode.LL;
 
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+            // Reads the code again from the start, with error recovery
+            return parseLl(input, startingRule, config);
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
         }
     }
+
+    /**
+     * @return the result of parsing with SLL prediction, or null if there was any error and the code has to be parsed
+     * again with full LL
+     */
+    private JmmParserResult parseSll(CharStream input, String startingRule, Map<String, String> config) {
+
+        // throws at the first error, instead of trying to recover
+        context.reset(input, PredictionMode.SLL);
+        var parser = context.getParser();
+
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        context.getLexer().addErrorListener(lexerListener);
+
+        ParseTree node;
+        try {
+            node = invokeRule(parser, startingRule);
+        } catch (RuntimeException e) {
+            // either a syntax error, or a construct that needs full LL
+            return null;
+        }
+
+        // the lexer does not bail out, let the LL stage report its errors
+        if (!lexerListener.getReports().isEmpty() || !atEnd(parser, startingRule)) {
+            return null;
+        }
+
+        return new JmmParserResult(toAst(node), new ArrayList<>(), config);
+    }
+
+    /**
+     * Same as the library AntlrParser.parse, reporting the lexical and syntactic errors.
+     */
+    private JmmParserResult parseLl(CharStream input, String startingRule, Map<String, String> config) {
+
+        context.reset(input, PredictionMode.LL);
+        var parser = context.getParser();
+
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        context.getLexer().addErrorListener(lexerListener);
+        var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+        parser.addErrorListener(parserListener);
+
+        var node = invokeRule(parser, startingRule);
+
+        var reports = new ArrayList<Report>();
+        reports.addAll(lexerListener.getReports());
+        reports.addAll(parserListener.getReports());
+        if (!atEnd(parser, startingRule)) {
+            var token = parser.getCurrentToken();
+            reports.add(Report.newError(Stage.SYNTATIC, token.getLine(), token.getCharPositionInLine(),
+                    "extraneous input '" + token.getText() + "' after rule '" + startingRule + "'", null));
+        }
+
+        if (ReportUtils.anyError(reports)) {
+            return new JmmParserResult(null, reports, config);
+        }
+
+        return new JmmParserResult(toAst(node), reports, config);
+    }
+
+    /**
+     * The program rule ends with EOF, the other rules must also cover the whole input (e.g. when reparsing a single
+     * method).
+     */
+    private boolean atEnd(JavammParser parser, String rule) {
+        return rule.equals(getDefaultRule()) || parser.getCurrentToken().getType() == Token.EOF;
+    }
+
+    private ParseTree invokeRule(JavammParser parser, String rule) {
+        // avoid reflection for the usual case
+        if (rule.equals("program")) {
+            return parser.program();
+        }
+
+        return (ParseTree) SpecsSystem.invoke(parser, rule);
+    }
+
+    private JmmNode toAst(ParseTree node) {
+        // Convert ANTLR CST to JmmNode AST
+        var root = JmmNodeBuilder.convert(node, context.getParser());
+
+        var ignoreList = context.getIgnoreList();
+        if (!ignoreList.isEmpty()) {
+            new JmmNodeCleanup(ignoreList).visit(root);
+        }
+
+        return root;
+    }
 }
@@ -0,0 +1,597 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.parser.JmmParser;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written recursive-descent parser for the Javamm grammar, with precedence climbing (Pratt parsing) for
+ * expressions, selected with '-a=pratt'.
+ * <p>
+ * Builds the same AST as the ANTLR parser (same kinds, hierarchies, positions and attributes), including the way ANTLR
+ * resolves the left-recursive expr rule: alternatives listed first bind tighter, so e.g. {@code !a.length} is
+ * {@code (!a).length}, and {@code this.foo()} is a single method call on this. Any change to Javamm.g4 must be
+ * replicated here.
+ * <p>
+ * Only valid programs are parsed here. On any error, or on the rare inputs where ANTLR has to resolve an ambiguity,
+ * the code is parsed again by the ANTLR parser, so the reports are the same as with the default parser.
+ * <p>
+ * Not thread-safe, use one instance per thread.
+ */
+public class JmmPrattParser implements JmmParser {
+
+    // precedence of the suffix and binary alternatives of the expr rule, the same numbers ANTLR gives them
+    private static final int NOT_PRECEDENCE = 17;
+    private static final int LENGTH_PRECEDENCE = 16;
+    private static final int CALL_PRECEDENCE = 14;
+    private static final int ACCESS_PRECEDENCE = 10;
+    private static final int MULTIPLICATIVE_PRECEDENCE = 9;
+    private static final int ADDITIVE_PRECEDENCE = 8;
+    private static final int LOGICAL_PRECEDENCE = 7;
+
+    private final JmmParserImpl fallback;
+    private PredictionMode lastPredictionMode;
+
+    private List<JmmLexer.Token> tokens;
+    private int current;
+
+    /**
+     * @param fallback parser for the inputs this parser does not handle
+     */
+    public JmmPrattParser(JmmParserImpl fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String getDefaultRule() {
+        return "program";
+    }
+
+    /**
+     * @return null if the last call to parse was handled by this parser, otherwise the prediction mode of the ANTLR
+     * parser that handled it
+     */
+    public PredictionMode getLastPredictionMode() {
+        return lastPredictionMode;
+    }
+
+    @Override
+    public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+
+        if (startingRule.equals(getDefaultRule())) {
+            try {
+                tokens = JmmLexer.tokenize(jmmCode);
+                current = 0;
+                var root = program();
+
+                lastPredictionMode = null;
+                return new JmmParserResult(root, new ArrayList<>(), config);
+            } catch (JmmSyntaxException e) {
+                // let ANTLR report the errors
+            } finally {
+                tokens = null;
+            }
+        }
+
+        var result = fallback.parse(jmmCode, startingRule, config);
+        lastPredictionMode = fallback.getLastPredictionMode();
+        return result;
+    }
+
+    private JmmNode program() {
+        var start = peek(0);
+        var node = newNode("Program");
+
+        while (check(JavammLexer.IMPORT)) {
+            node.add(importDeclaration());
+        }
+        node.add(classDecl());
+
+        if (!check(Token.EOF)) {
+            throw error("Expected the end of the file");
+        }
+
+        // the program ends at the EOF token, as in ANTLR
+        return finish(node, start, peek(0));
+    }
+
+    private CompactJmmNode importDeclaration() {
+        var start = expect(JavammLexer.IMPORT);
+        var node = newNode("ImportDeclaration");
+
+        var lib = new ArrayList<String>();
+        var id = expect(JavammLexer.ID);
+        lib.add(id.getText());
+        while (accept(JavammLexer.DOT)) {
+            id = expect(JavammLexer.ID);
+            lib.add(id.getText());
+        }
+        expect(JavammLexer.SEMI);
+
+        // the generated context keeps the last token added to the list in a field of its own
+        node.put("ID", id.getText());
+        node.putObject("lib", lib);
+
+        return finish(node, start);
+    }
+
+    private CompactJmmNode classDecl() {
+        var start = expect(JavammLexer.CLASS);
+        var node = newNode("ClassDecl");
+
+        node.put("name", expect(JavammLexer.ID).getText());
+        if (accept(JavammLexer.EXTENDS)) {
+            node.put("superClass", expect(JavammLexer.ID).getText());
+        }
+
+        expect(JavammLexer.LCURLY);
+        while (isFieldDecl()) {
+            node.add(varDecl());
+        }
+        while (!check(JavammLexer.RCURLY)) {
+            node.add(methodDecl());
+        }
+        expect(JavammLexer.RCURLY);
+
+        return finish(node, start);
+    }
+
+    private CompactJmmNode varDecl() {
+        var start = peek(0);
+        var node = newNode("VarDecl");
+
+        node.add(type());
+        node.put("name", expectName(JavammLexer.MAIN, JavammLexer.ID).getText());
+        expect(JavammLexer.SEMI);
+
+        return finish(node, start);
+    }
+
+    private CompactJmmNode type() {
+        var start = peek(0);
+        var node = newNode("Type");
+
+        boolean isArray = false;
+        switch (start.getType()) {
+            case JavammLexer.INT, JavammLexer.BOOL, JavammLexer.ID -> {
+                next();
+                if (check(JavammLexer.LSPAREN) && peek(1).getType() == JavammLexer.RSPAREN) {
+                    next();
+                    next();
+                    isArray = true;
+                }
+            }
+            case JavammLexer.VOID -> next();
+            default -> throw error("Expected a type");
+        }
+
+        node.putObject("isArray", isArray);
+        node.put("name", start.getText());
+
+        return finish(node, start);
+    }
+
+    /**
+     * Type of the expression 'new', which can end either before or after '[]'.
+     */
+    private CompactJmmNode newType() {
+        int type = peek(0).getType();
+        boolean mayBeArray = type == JavammLexer.INT || type == JavammLexer.BOOL || type == JavammLexer.ID;
+
+        if (mayBeArray && peek(1).getType() == JavammLexer.LSPAREN && peek(2).getType() == JavammLexer.RSPAREN) {
+            switch (peek(3).getType()) {
+                // 'new int[](...)', the only way to read it
+                case JavammLexer.LPAREN -> {
+                    return type();
+                }
+                // 'new int[][...]' is ambiguous, ANTLR resolves it
+                case JavammLexer.LSPAREN -> throw error("Ambiguous array creation");
+                // 'new int[]', an empty array of int
+                default -> {
+                    var start = peek(0);
+                    var node = newNode("Type");
+                    next();
+                    node.putObject("isArray", false);
+                    node.put("name", start.getText());
+                    return finish(node, start);
+                }
+            }
+        }
+
+        return type();
+    }
+
+    private CompactJmmNode methodDecl() {
+        var start = peek(0);
+        var node = newNode("MethodDecl");
+
+        boolean isPublic = accept(JavammLexer.PUBLIC);
+        boolean isStatic = accept(JavammLexer.STATIC);
+        node.putObject("isPublic", isPublic);
+        node.putObject("isStatic", isStatic);
+
+        node.add(type());
+
+        if (isStatic) {
+            node.put("name", expect(JavammLexer.MAIN).getText());
+            expect(JavammLexer.LPAREN);
+            // the parameters of main are not separated by commas
+            while (isTypeStart(peek(0).getType())) {
+                node.add(param());
+            }
+            expect(JavammLexer.RPAREN);
+        } else {
+            node.put("name", expectName(JavammLexer.LENGTH, JavammLexer.ID).getText());
+            expect(JavammLexer.LPAREN);
+            if (isTypeStart(peek(0).getType())) {
+                node.add(param());
+                while (accept(JavammLexer.COMMA)) {
+                    node.add(param());
+                }
+            }
+            expect(JavammLexer.RPAREN);
+        }
+
+        expect(JavammLexer.LCURLY);
+        while (isLocalVarDecl()) {
+            node.add(varDecl());
+        }
+        while (!check(JavammLexer.RCURLY)) {
+            node.add(stmt());
+        }
+        expect(JavammLexer.RCURLY);
+
+        return finish(node, start);
+    }
+
+    private CompactJmmNode param() {
+        var start = peek(0);
+        var node = newNode("Param");
+
+        node.add(type());
+        node.putObject("isVarArg", accept(JavammLexer.MULTIPLE));
+        node.put("name", expect(JavammLexer.ID).getText());
+
+        return finish(node, start);
+    }
+
+    private CompactJmmNode stmt() {
+        var start = peek(0);
+
+        switch (start.getType()) {
+            case JavammLexer.LCURLY -> {
+                var node = newNode("ParStmt", "Stmt");
+                next();
+                while (!check(JavammLexer.RCURLY)) {
+                    node.add(stmt());
+                }
+                next();
+                return finish(node, start);
+            }
+            case JavammLexer.IF -> {
+                var node = newNode("IfStmt", "Stmt");
+                next();
+                expect(JavammLexer.LPAREN);
+                node.add(expr(0));
+                expect(JavammLexer.RPAREN);
+                node.add(stmt());
+                expect(JavammLexer.ELSE);
+                node.add(stmt());
+                return finish(node, start);
+            }
+            case JavammLexer.WHILE -> {
+                var node = newNode("WhileStmt", "Stmt");
+                next();
+                expect(JavammLexer.LPAREN);
+                node.add(expr(0));
+                expect(JavammLexer.RPAREN);
+                node.add(stmt());
+                return finish(node, start);
+            }
+            case JavammLexer.RETURN -> {
+                var node = newNode("RetStmt", "Stmt");
+                next();
+                node.add(expr(0));
+                expect(JavammLexer.SEMI);
+                return finish(node, start);
+            }
+            default -> {
+                var expr = expr(0);
+
+                if (accept(JavammLexer.SEMI)) {
+                    var node = newNode("Expression", "Stmt");
+                    node.add(expr);
+                    return finish(node, start);
+                }
+
+                var node = newNode("AssignStmt", "Stmt");
+                expect(JavammLexer.EQUALS);
+                node.add(expr);
+                node.add(expr(0));
+                expect(JavammLexer.SEMI);
+                return finish(node, start);
+            }
+        }
+    }
+
+    /**
+     * Parses an expression whose operators bind at least as tight as the given precedence.
+     */
+    private CompactJmmNode expr(int precedence) {
+        var start = peek(0);
+        var left = primary();
+
+        while (true) {
+            int type = peek(0).getType();
+            CompactJmmNode node;
+
+            if (type == JavammLexer.DOT && peek(1).getType() == JavammLexer.LENGTH
+                    && precedence <= LENGTH_PRECEDENCE) {
+                next();
+                next();
+                node = newExpr("Length");
+                node.add(left);
+            } else if (type == JavammLexer.DOT && peek(1).getType() == JavammLexer.ID
+                    && precedence <= CALL_PRECEDENCE) {
+                next();
+                node = newExpr("MethodCall");
+                node.put("name", next().getText());
+                node.putObject("ignore_first", true);
+                node.add(left);
+                expect(JavammLexer.LPAREN);
+                arguments(node, JavammLexer.RPAREN);
+            } else if (type == JavammLexer.LSPAREN && precedence <= ACCESS_PRECEDENCE) {
+                next();
+                node = newExpr("ArrayAccess");
+                node.add(left);
+                node.add(expr(0));
+                expect(JavammLexer.RSPAREN);
+            } else if ((type == JavammLexer.MUL || type == JavammLexer.DIV)
+                    && precedence <= MULTIPLICATIVE_PRECEDENCE) {
+                node = binaryExpr(left, MULTIPLICATIVE_PRECEDENCE);
+            } else if ((type == JavammLexer.ADD || type == JavammLexer.MINUS)
+                    && precedence <= ADDITIVE_PRECEDENCE) {
+                node = binaryExpr(left, ADDITIVE_PRECEDENCE);
+            } else if ((type == JavammLexer.AND || type == JavammLexer.LESS)
+                    && precedence <= LOGICAL_PRECEDENCE) {
+                node = binaryExpr(left, LOGICAL_PRECEDENCE);
+            } else {
+                return left;
+            }
+
+            left = finish(node, start);
+        }
+    }
+
+    private CompactJmmNode binaryExpr(CompactJmmNode left, int precedence) {
+        var node = newExpr("BinaryExpr");
+        node.put("name", next().getText());
+        node.add(left);
+        // left-associative
+        node.add(expr(precedence + 1));
+        return node;
+    }
+
+    private CompactJmmNode primary() {
+        var start = next();
+        CompactJmmNode node;
+
+        switch (start.getType()) {
+            case JavammLexer.LPAREN -> {
+                node = newExpr("Parantheses");
+                node.add(expr(0));
+                expect(JavammLexer.RPAREN);
+            }
+            case JavammLexer.NOT -> {
+                node = newExpr("NotOp");
+                node.add(expr(NOT_PRECEDENCE));
+            }
+            case JavammLexer.THIS -> {
+                if (check(JavammLexer.DOT) && peek(1).getType() == JavammLexer.ID
+                        && peek(2).getType() == JavammLexer.LPAREN) {
+                    // a call on this is its own alternative, which comes before 'this' followed by a call
+                    next();
+                    node = newExpr("MethodCall");
+                    node.put("name", next().getText());
+                    node.putObject("isVirtual", true);
+                    node.putObject("ignore_first", true);
+                    node.putObject("is_this", true);
+                    next();
+                    arguments(node, JavammLexer.RPAREN);
+                } else {
+                    node = newExpr("ThisExpr");
+                    node.put("name", start.getText());
+                }
+            }
+            case JavammLexer.ID -> {
+                if (accept(JavammLexer.LPAREN)) {
+                    node = newExpr("MethodCall");
+                    node.put("name", start.getText());
+                    arguments(node, JavammLexer.RPAREN);
+                } else {
+                    node = newExpr("VarRefExpr");
+                    node.put("name", start.getText());
+                }
+            }
+            case JavammLexer.NEW -> {
+                var type = newType();
+                if (accept(JavammLexer.LPAREN)) {
+                    node = newExpr("NewObject");
+                    node.add(type);
+                    arguments(node, JavammLexer.RPAREN);
+                } else {
+                    expect(JavammLexer.LSPAREN);
+                    node = newExpr("NewArray");
+                    node.add(type);
+                    arguments(node, JavammLexer.RSPAREN);
+                }
+            }
+            case JavammLexer.LSPAREN -> {
+                node = newExpr("ArrayCall");
+                arguments(node, JavammLexer.RSPAREN);
+            }
+            case JavammLexer.TRUE, JavammLexer.FALSE, JavammLexer.INTEGER -> {
+                node = newExpr("Const");
+                node.put("name", start.getText());
+            }
+            default -> throw error(start, "Expected an expression");
+        }
+
+        return finish(node, start);
+    }
+
+    /**
+     * Parses a list of expressions separated by commas, possibly empty, and the token that closes it.
+     */
+    private void arguments(CompactJmmNode node, int close) {
+        if (!check(close)) {
+            node.add(expr(0));
+            while (accept(JavammLexer.COMMA)) {
+                node.add(expr(0));
+            }
+        }
+        expect(close);
+    }
+
+    /**
+     * In the class body, fields and methods can both start with a type.
+     */
+    private boolean isFieldDecl() {
+        int type = peek(0).getType();
+        if (!isTypeStart(type)) {
+            return false;
+        }
+
+        int name = type != JavammLexer.VOID && peek(1).getType() == JavammLexer.LSPAREN
+                && peek(2).getType() == JavammLexer.RSPAREN ? 3 : 1;
+
+        return peek(name + 1).getType() == JavammLexer.SEMI;
+    }
+
+    /**
+     * In the method body, a declaration starts with a type followed by a name, and an identifier alone starts a
+     * statement.
+     */
+    private boolean isLocalVarDecl() {
+        switch (peek(0).getType()) {
+            case JavammLexer.INT, JavammLexer.BOOL, JavammLexer.VOID -> {
+                return true;
+            }
+            case JavammLexer.ID -> {
+                int next = peek(1).getType();
+                return next == JavammLexer.ID || next == JavammLexer.MAIN
+                        || (next == JavammLexer.LSPAREN && peek(2).getType() == JavammLexer.RSPAREN);
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private static boolean isTypeStart(int type) {
+        return type == JavammLexer.INT || type == JavammLexer.BOOL || type == JavammLexer.ID
+                || type == JavammLexer.VOID;
+    }
+
+    private CompactJmmNode newNode(String kind) {
+        var node = new CompactJmmNode(Kind.fromString(kind));
+        node.setHierarchy(List.of(kind));
+        return node;
+    }
+
+    private CompactJmmNode newNode(String kind, String superKind) {
+        var node = new CompactJmmNode(Kind.fromString(kind));
+        node.setHierarchy(List.of(kind, superKind));
+        return node;
+    }
+
+    /**
+     * Creates a node of the expr rule, with its locals set to their initial values.
+     */
+    private CompactJmmNode newExpr(String kind) {
+        var node = newNode(kind, "Expr");
+        node.putObject("isVirtual", false);
+        node.putObject("ignore_first", false);
+        node.putObject("is_this", false);
+        return node;
+    }
+
+    /**
+     * Sets the position of the node, from its first token to the last token consumed.
+     */
+    private CompactJmmNode finish(CompactJmmNode node, JmmLexer.Token start) {
+        return finish(node, start, tokens.get(current - 1));
+    }
+
+    private CompactJmmNode finish(CompactJmmNode node, JmmLexer.Token start, JmmLexer.Token end) {
+        node.setPosition(NodePosition.LINE_START, start.getLine());
+        node.setPosition(NodePosition.COL_START, start.getColumn());
+        node.setPosition(NodePosition.LINE_END, end.getLine());
+        node.setPosition(NodePosition.COL_END, end.getColumn());
+
+        return node;
+    }
+
+    private JmmLexer.Token peek(int offset) {
+        // the last token is EOF
+        return tokens.get(Math.min(current + offset, tokens.size() - 1));
+    }
+
+    private JmmLexer.Token next() {
+        var token = peek(0);
+        if (token.getType() == Token.EOF) {
+            throw error(token, "Unexpected end of file");
+        }
+
+        current++;
+        return token;
+    }
+
+    private boolean check(int type) {
+        return peek(0).getType() == type;
+    }
+
+    private boolean accept(int type) {
+        if (!check(type)) {
+            return false;
+        }
+
+        next();
+        return true;
+    }
+
+    private JmmLexer.Token expect(int type) {
+        if (!check(type)) {
+            throw error("Expected " + JavammLexer.VOCABULARY.getDisplayName(type));
+        }
+
+        return next();
+    }
+
+    private JmmLexer.Token expectName(int type, int otherType) {
+        if (!check(type) && !check(otherType)) {
+            throw error("Expected a name");
+        }
+
+        return next();
+    }
+
+    private JmmSyntaxException error(String message) {
+        return error(peek(0), message);
+    }
+
+    private JmmSyntaxException error(JmmLexer.Token token, String message) {
+        return new JmmSyntaxException(message + ", found '" + token.getText() + "'", token.getLine(),
+                token.getColumn());
+    }
+}
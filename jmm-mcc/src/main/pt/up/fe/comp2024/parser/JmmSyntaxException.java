@@ -0,0 +1,12 @@
+package pt.up.fe.comp2024.parser;
+
+/**
+ * Thrown by the hand-written front end when it cannot read the input, either because of an error or because it is a
+ * construct left to the ANTLR parser. Used for control flow, so it does not fill in a stack trace.
+ */
+class JmmSyntaxException extends RuntimeException {
+
+    JmmSyntaxException(String message, int line, int column) {
+        super(message + " at " + line + ":" + column, null, false, false);
+    }
+}
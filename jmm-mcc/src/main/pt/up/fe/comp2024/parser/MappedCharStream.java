@@ -0,0 +1,152 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Input of the lexer read straight from a memory-mapped source file, instead of decoding the file into a String and
+ * copying it again into the char array of an ANTLRInputStream.
+ * <p>
+ * The file stays outside of the heap, only the text of the tokens is copied when it is needed. Each byte is one char,
+ * so only plain ASCII files can be mapped, which covers every valid program (non-ASCII chars can only appear in
+ * comments).
+ */
+public class MappedCharStream implements CharStream {
+
+    private final ByteBuffer bytes;
+    private final int size;
+    private final String sourceName;
+    private int position;
+
+    private MappedCharStream(ByteBuffer bytes, String sourceName) {
+        this.bytes = bytes;
+        this.size = bytes.limit();
+        this.sourceName = sourceName;
+        this.position = 0;
+    }
+
+    /**
+     * @param file
+     * @return the mapped file, or empty if it is not plain ASCII and has to be decoded
+     */
+    public static Optional<MappedCharStream> open(File file) {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("File '" + file + "' is too large to be mapped");
+            }
+
+            // the mapping stays valid after closing the channel
+            var bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            for (int i = 0; i < bytes.limit(); i++) {
+                if (bytes.get(i) < 0) {
+                    return Optional.empty();
+                }
+            }
+
+            return Optional.of(new MappedCharStream(bytes, file.getName()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map file '" + file + "'", e);
+        }
+    }
+
+    /**
+     * @return the contents of the file, e.g. to hash them without copying them into the heap
+     */
+    public ByteBuffer getBytes() {
+        return bytes.asReadOnlyBuffer();
+    }
+
+    @Override
+    public void consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+
+        position++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            // undefined
+            return 0;
+        }
+
+        if (i < 0) {
+            // e.g. LA(-1) is the last char consumed
+            i++;
+            if (position + i - 1 < 0) {
+                return IntStream.EOF;
+            }
+        }
+
+        int index = position + i - 1;
+        if (index >= size) {
+            return IntStream.EOF;
+        }
+
+        return bytes.get(index);
+    }
+
+    /**
+     * The whole file is always available, there is nothing to buffer.
+     */
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, size - 1);
+
+        if (start >= size || stop < start) {
+            return "";
+        }
+
+        var text = new byte[stop - start + 1];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
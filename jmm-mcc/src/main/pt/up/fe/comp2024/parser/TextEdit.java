@@ -0,0 +1,67 @@
+package pt.up.fe.comp2024.parser;
+
+/**
+ * Replacement of a range of the source by new text, as sent by an editor.
+ */
+public class TextEdit {
+
+    private final int start;
+    private final int end;
+    private final String text;
+
+    /**
+     * @param start offset of the first char replaced
+     * @param end   offset after the last char replaced, the same as start for an insertion
+     * @param text  new text, empty for a deletion
+     */
+    public TextEdit(int start, int end, String text) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range [" + start + ", " + end + ")");
+        }
+
+        this.start = start;
+        this.end = end;
+        this.text = text;
+    }
+
+    public static TextEdit insert(int offset, String text) {
+        return new TextEdit(offset, offset, text);
+    }
+
+    public static TextEdit delete(int start, int end) {
+        return new TextEdit(start, end, "");
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return how much longer the source is after the edit (negative if shorter)
+     */
+    public int getLengthDelta() {
+        return text.length() - (end - start);
+    }
+
+    public String apply(String code) {
+        if (end > code.length()) {
+            throw new IllegalArgumentException("Edit [" + start + ", " + end + ") is outside of the code (length "
+                    + code.length() + ")");
+        }
+
+        return code.substring(0, start) + text + code.substring(end);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ") -> '" + text + "'";
+    }
+}
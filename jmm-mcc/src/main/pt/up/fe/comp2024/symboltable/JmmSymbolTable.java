@@ -3,10 +3,12 @@ package pt.up.fe.comp2024.symboltable;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.TypeUtils;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class JmmSymbolTable implements SymbolTable {
 
@@ -18,6 +20,9 @@ public class JmmSymbolTable implements SymbolTable {
     private final Map<String, Type> returnTypes;
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
+    private final Map<String, Map<String, ResolvedSymbol>> scopes;
+    private final Map<String, ResolvedSymbol> fieldScope;
+    private final Map<String, Type> classTypes;
 
     public JmmSymbolTable(List<Symbol> fields,
                           List<String> imports,
@@ -26,7 +31,10 @@ public class JmmSymbolTable implements SymbolTable {
                           List<String> methods,
                           Map<String, Type> returnTypes,
                           Map<String, List<Symbol>> params,
-                          Map<String, List<Symbol>> locals) {
+                          Map<String, List<Symbol>> locals,
+                          Map<String, Map<String, ResolvedSymbol>> scopes,
+                          Map<String, ResolvedSymbol> fieldScope,
+                          Map<String, Type> classTypes) {
         this.fields = fields;
         this.imports = imports;
         this.superClass = superClass;
@@ -35,6 +43,9 @@ public class JmmSymbolTable implements SymbolTable {
         this.returnTypes = returnTypes;
         this.params = params;
         this.locals = locals;
+        this.scopes = scopes;
+        this.fieldScope = fieldScope;
+        this.classTypes = classTypes;
     }
 
     @Override
@@ -77,16 +88,36 @@ public class JmmSymbolTable implements SymbolTable {
         return Collections.unmodifiableList(locals.get(methodSignature));
     }
 
-    public boolean hasVariable(String variable, String method) {
-        for (var field : fields) {
-            if (field.getName().equals(variable)) return true;
-        }
-        for (var varia : getLocalVariables(method)) {
-            if (varia.getName().equals(variable)) return true;
-        }
+    /**
+     * Finds the variable a name refers to inside a method, looking first at the parameters, then at the locals and
+     * then at the fields, in constant time.
+     *
+     * @param method the name of the method, if null or not a method of the class only the fields are visible
+     * @param name
+     * @return the variable, or empty if there is no variable with that name
+     */
+    public Optional<ResolvedSymbol> resolve(String method, String name) {
+        // the scope of a method has only its parameters and locals, the fields are shared by all methods
+        var scope = method == null ? null : scopes.get(method);
+        var symbol = scope == null ? null : scope.get(name);
+
+        return Optional.ofNullable(symbol != null ? symbol : fieldScope.get(name));
+    }
 
-        return false;
+    /**
+     * The types of the symbols of the table are canonical, the analysis can use this for the types it creates.
+     *
+     * @param name
+     * @param isArray
+     * @return the canonical instance of the type in this compilation, see
+     * {@link TypeUtils#getType(String, boolean, Map)}
+     */
+    public Type getType(String name, boolean isArray) {
+        return TypeUtils.getType(name, isArray, classTypes);
+    }
 
+    public boolean hasVariable(String variable, String method) {
+        return resolve(method, variable).isPresent();
     }
 
 }
@@ -4,31 +4,77 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import static pt.up.fe.comp2024.ast.Kind.*;
-
+/**
+ * Builds the symbol table of a program in a single pass over the AST: the imports, and then each member of the class
+ * once, filling the fields, methods, return types, parameters, locals and scopes together.
+ */
 public class JmmSymbolTableBuilder {
 
 
     public static JmmSymbolTable build(JmmNode root) {
 
-        var classDecl = root.getJmmChild(root.getChildren().size() - 1);
+        int numImports = root.getNumChildren() - 1;
+        var classDecl = root.getJmmChild(numImports);
 
         SpecsCheck.checkArgument(Kind.CLASS_DECL.check(classDecl), () -> "Expected a class declaration: " + classDecl);
         String className = classDecl.get("name");
 
-        var fields = buildFields(classDecl);
-        var imports = buildImports(root);
-        var methods = buildMethods(classDecl);
-        var returnTypes = buildReturnTypes(classDecl);
-        var params = buildParams(classDecl);
-        var locals = buildLocals(classDecl);
+        List<String> imports = new ArrayList<>(numImports);
+        for (int i = 0; i < numImports; i++) {
+            imports.add(root.getJmmChild(i).get("lib"));
+        }
+
+        // fields come before the methods, together they are all the members of the class
+        int numMembers = classDecl.getNumChildren();
+        int numFields = 0;
+        while (numFields < numMembers && Kind.VAR_DECL.check(classDecl.getJmmChild(numFields))) {
+            numFields++;
+        }
+        int numMethods = numMembers - numFields;
+
+        List<Symbol> fields = new ArrayList<>(numFields);
+        List<String> methods = new ArrayList<>(numMethods);
+        Map<String, Type> returnTypes = new HashMap<>(capacity(numMethods));
+        Map<String, List<Symbol>> params = new HashMap<>(capacity(numMethods));
+        Map<String, List<Symbol>> locals = new HashMap<>(capacity(numMethods));
+        Map<String, Map<String, ResolvedSymbol>> scopes = new HashMap<>(capacity(numMethods));
+        // shared with the table, the passes that run in parallel may add types
+        Map<String, Type> classTypes = new ConcurrentHashMap<>();
+
+        for (int i = 0; i < numMembers; i++) {
+            var member = classDecl.getJmmChild(i);
+
+            switch (Kind.of(member)) {
+                case VAR_DECL -> fields.add(new Symbol(
+                        TypeUtils.getType(member.getJmmChild(0).get("name"), false, classTypes), member.get("name")));
+                case METHOD_DECL -> {
+                    var methodName = member.get("name");
+                    var methodParams = new ArrayList<Symbol>();
+                    var methodLocals = new ArrayList<Symbol>();
+                    addParamsAndLocals(member, methodParams, methodLocals, classTypes);
+
+                    methods.add(methodName);
+                    returnTypes.put(methodName, getType(member.getJmmChild(0), classTypes));
+                    params.put(methodName, methodParams);
+                    locals.put(methodName, methodLocals);
+                    scopes.put(methodName, buildScope(List.of(), methodParams, methodLocals));
+                }
+                default -> {
+                }
+            }
+        }
+
+        var fieldScope = buildScope(fields, List.of(), List.of());
 
         String superClass;
         try {
@@ -37,97 +83,68 @@ public class JmmSymbolTableBuilder {
             superClass = "";
         }
 
-        return new JmmSymbolTable(fields, imports, className, superClass, methods, returnTypes, params, locals);
-    }
-
-    private static List<Symbol> buildFields(JmmNode classDecl) {
-        List<JmmNode> var_declarations = classDecl.getChildren(VAR_DECL);
-        List<Symbol> fields = new ArrayList<Symbol>();
-
-        for (var var_declaration : var_declarations) {
-            String fieldType = var_declaration.getChild(0).get("name");
-            String fieldName = var_declaration.get("name");
-
-            Symbol field = new Symbol(new Type(fieldType, false), fieldName);
-            fields.add(field);
-        }
-
-        return fields;
-    }
-
-    private static List<String> buildImports(JmmNode root) {
-        int size = root.getChildren().size();
-        List<String> res = new ArrayList<>();
-
-        for (int i = 0; i < size - 1; i++) {
-            res.add(root.getChild(i).get("lib"));
-        }
-
-        return res;
-    }
-
-    private static Map<String, Type> buildReturnTypes(JmmNode classDecl) {
-
-        Map<String, Type> map = new HashMap<>();
-
-        classDecl.getChildren(METHOD_DECL).stream()
-                .forEach(method -> map.put(method.get("name"), new Type(method.getChild(0).get("name"), Boolean.parseBoolean(method.getChild(0).get("isArray")))));
-
-        return map;
+        return new JmmSymbolTable(fields, imports, className, superClass, methods, returnTypes, params, locals, scopes,
+                fieldScope, classTypes);
     }
 
-    private static Map<String, List<Symbol>> buildParams(JmmNode classDecl) {
-
-        Map<String, List<Symbol>> map = new HashMap<>();
-        List<JmmNode> methods = classDecl.getChildren(METHOD_DECL);
-
-        for (JmmNode method : methods) {
-            var methodName = method.get("name");
-            var params = new ArrayList<Symbol>();
-            List<JmmNode> paramNodes = method.getChildren(PARAM);
-            for (JmmNode param : paramNodes) {
-                var paramName = param.get("name");
-                var type = new Type(param.getChild(0).get("name"), Boolean.parseBoolean(param.getChild(0).get("isArray")) || Boolean.parseBoolean(param.get("isVarArg")));
-                params.add(new Symbol(type, paramName));
+    /**
+     * The parameters and locals are the children after the return type, before the statements.
+     */
+    private static void addParamsAndLocals(JmmNode method, List<Symbol> params, List<Symbol> locals,
+                                           Map<String, Type> classTypes) {
+        for (int i = 1; i < method.getNumChildren(); i++) {
+            var child = method.getJmmChild(i);
+
+            switch (Kind.of(child)) {
+                case PARAM -> {
+                    var type = child.getJmmChild(0);
+                    params.add(new Symbol(TypeUtils.getType(type.get("name"),
+                            NodeUtils.getBooleanAttribute(type, "isArray", "false")
+                                    || NodeUtils.getBooleanAttribute(child, "isVarArg", "false"), classTypes),
+                            child.get("name")));
+                }
+                case VAR_DECL -> locals.add(new Symbol(getType(child.getJmmChild(0), classTypes), child.get("name")));
+                default -> {
+                    return;
+                }
             }
-            map.put(methodName, params);
-
-
         }
-
-
-        return map;
     }
 
-    private static Map<String, List<Symbol>> buildLocals(JmmNode classDecl) {
-        Map<String, List<Symbol>> map = new HashMap<>();
-
-
-        classDecl.getChildren(METHOD_DECL).stream()
-                .forEach(method -> map.put(method.get("name"), getLocalsList(method)));
-
-        return map;
+    private static Type getType(JmmNode type, Map<String, Type> classTypes) {
+        return TypeUtils.getType(type.get("name"), NodeUtils.getBooleanAttribute(type, "isArray", "false"),
+                classTypes);
     }
 
-    private static List<String> buildMethods(JmmNode classDecl) {
-
-        return classDecl.getChildren(METHOD_DECL).stream()
-                .map(method -> method.get("name"))
-                .toList();
+    /**
+     * @return initial capacity of a HashMap that holds the given number of entries without resizing
+     */
+    private static int capacity(int entries) {
+        return (int) (entries / 0.75f) + 1;
     }
 
-
-    private static List<Symbol> getLocalsList(JmmNode methodDecl) {
-
-        var vars = new ArrayList<Symbol>();
-        List<JmmNode> varsDec = methodDecl.getChildren(VAR_DECL);
-        for (JmmNode variable : varsDec) {
-            var variableName = variable.get("name");
-            var type = new Type(variable.getChild(0).get("name"), Boolean.parseBoolean(variable.getChild(0).get("isArray")));
-            vars.add(new Symbol(type, variableName));
+    /**
+     * Indexes variables by name. A parameter hides a local or field with the same name, and a local hides a field. If
+     * a name is declared twice with the same origin, the first declaration is kept.
+     *
+     * @param fields
+     * @param params
+     * @param locals
+     * @return
+     */
+    public static Map<String, ResolvedSymbol> buildScope(List<Symbol> fields, List<Symbol> params, List<Symbol> locals) {
+        Map<String, ResolvedSymbol> scope = new HashMap<>(capacity(fields.size() + params.size() + locals.size()));
+
+        for (var param : params) {
+            scope.putIfAbsent(param.getName(), new ResolvedSymbol(param, ResolvedSymbol.Origin.PARAM));
+        }
+        for (var local : locals) {
+            scope.putIfAbsent(local.getName(), new ResolvedSymbol(local, ResolvedSymbol.Origin.LOCAL));
+        }
+        for (var field : fields) {
+            scope.putIfAbsent(field.getName(), new ResolvedSymbol(field, ResolvedSymbol.Origin.FIELD));
         }
 
-        return vars;
+        return scope;
     }
-
 }
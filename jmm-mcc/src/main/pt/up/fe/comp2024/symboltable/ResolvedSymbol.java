@@ -0,0 +1,49 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * Variable a name refers to inside a method, and where it was declared.
+ */
+public class ResolvedSymbol {
+
+    public enum Origin {
+        PARAM,
+        LOCAL,
+        FIELD
+    }
+
+    private final Symbol symbol;
+    private final Origin origin;
+
+    public ResolvedSymbol(Symbol symbol, Origin origin) {
+        this.symbol = symbol;
+        this.origin = origin;
+    }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public Origin getOrigin() {
+        return origin;
+    }
+
+    public String getName() {
+        return symbol.getName();
+    }
+
+    public Type getType() {
+        return symbol.getType();
+    }
+
+    public boolean isField() {
+        return origin == Origin.FIELD;
+    }
+
+    @Override
+    public String toString() {
+        return origin + " " + symbol;
+    }
+}
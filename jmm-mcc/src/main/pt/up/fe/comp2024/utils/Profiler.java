@@ -0,0 +1,158 @@
+package pt.up.fe.comp2024.utils;
+
+import com.google.gson.GsonBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures wall time, CPU time and allocated bytes of the stages of a compilation.
+ * <p>
+ * Measurements can be nested (e.g. the symbol table inside the semantic analysis stage). A disabled profiler just
+ * runs the stages. One Profiler instance per compilation, and it must only be used by the thread running it.
+ */
+public class Profiler {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+    private final boolean enabled;
+    private final List<Measurement> stages;
+    private final Deque<Measurement> current;
+
+    public Profiler(boolean enabled) {
+        this.enabled = enabled;
+        this.stages = new ArrayList<>();
+        this.current = new ArrayDeque<>();
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        var bean = ManagementFactory.getThreadMXBean();
+
+        // allocated bytes are only available in HotSpot-based JVMs
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            return sunBean;
+        }
+
+        return null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T> T measure(String name, Supplier<T> stage) {
+        if (!enabled) {
+            return stage.get();
+        }
+
+        var measurement = new Measurement(name);
+        add(measurement);
+
+        current.push(measurement);
+        long wallStart = System.nanoTime();
+        long cpuStart = getCpuNanos();
+        long allocatedStart = getAllocatedBytes();
+        try {
+            return stage.get();
+        } finally {
+            measurement.wallNanos = System.nanoTime() - wallStart;
+            measurement.cpuNanos = getCpuNanos() - cpuStart;
+            measurement.allocatedBytes = getAllocatedBytes() - allocatedStart;
+            current.pop();
+        }
+    }
+
+    /**
+     * Adds a stage measured elsewhere (e.g. summed over several threads), inside the stage being measured.
+     *
+     * @param name
+     * @param wallNanos
+     * @param cpuNanos       -1 if not measured
+     * @param allocatedBytes -1 if not measured
+     */
+    public void record(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+        if (!enabled) {
+            return;
+        }
+
+        var measurement = new Measurement(name);
+        measurement.wallNanos = wallNanos;
+        measurement.cpuNanos = cpuNanos;
+        measurement.allocatedBytes = allocatedBytes;
+        add(measurement);
+    }
+
+    public List<Measurement> getStages() {
+        return stages;
+    }
+
+    public String toJson() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(this.stages);
+    }
+
+    public void writeJson(File file) {
+        SpecsIo.write(file, toJson());
+    }
+
+    private void add(Measurement measurement) {
+        var parent = current.peek();
+        if (parent == null) {
+            stages.add(measurement);
+        } else {
+            parent.children.add(measurement);
+        }
+    }
+
+    private static long getCpuNanos() {
+        var bean = ManagementFactory.getThreadMXBean();
+        return bean.isCurrentThreadCpuTimeSupported() ? bean.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread, or -1 if the JVM doesn't measure them
+     */
+    public static long getAllocatedBytes() {
+        return THREAD_BEAN == null ? -1 : THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static class Measurement {
+
+        private final String name;
+        private final List<Measurement> children;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+
+        private Measurement(String name) {
+            this.name = name;
+            this.children = new ArrayList<>();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public List<Measurement> getChildren() {
+            return children;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package pt.up.fe.comp2024.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the same bytes to two streams, e.g. to keep a copy of what is printed to the standard output.
+ */
+public class TeeOutputStream extends OutputStream {
+
+    private final OutputStream first;
+    private final OutputStream second;
+
+    public TeeOutputStream(OutputStream first, OutputStream second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        first.write(b);
+        second.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        first.write(bytes, offset, length);
+        second.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        first.flush();
+        second.flush();
+    }
+}
@@ -0,0 +1,133 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.CompilationCache;
+import pt.up.fe.comp2024.CompiledClass;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompilationCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static CompiledClass compiled(String className) {
+        return new CompiledClass(className, ".class public " + className + "\n", new byte[]{1, 2, 3}, "AST\n");
+    }
+
+    private static File getEntry(File folder) {
+        var entries = folder.listFiles((dir, name) -> name.endsWith(".jcache"));
+        assertNotNull(entries);
+        assertEquals(1, entries.length);
+        return entries[0];
+    }
+
+    @Test
+    public void hitOnlyForSameSourceAndOptions() throws IOException {
+        var cache = new CompilationCache(temp.newFolder());
+        Map<String, String> config = CompilerConfig.getDefault();
+
+        assertFalse(cache.get("class A {}", config).isPresent());
+        cache.put("class A {}", config, compiled("A"));
+
+        var cached = cache.get("class A {}", config).orElseThrow();
+        assertEquals("A", cached.getClassName());
+        assertEquals(".class public A\n", cached.getJasminCode());
+        assertArrayEquals(new byte[]{1, 2, 3}, cached.getClassBytes());
+        assertEquals("AST\n", cached.getOutput());
+
+        // options that change the generated code are part of the key
+        assertFalse(cache.get("class A { }", config).isPresent());
+        Map<String, String> optimized = CompilerConfig.getDefault();
+        optimized.put("optimize", "true");
+        assertFalse(cache.get("class A {}", optimized).isPresent());
+        Map<String, String> classOutput = CompilerConfig.getDefault();
+        CompilerConfig.setOutputFormat(classOutput, "class");
+        assertFalse(cache.get("class A {}", classOutput).isPresent());
+
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        Map<String, String> config = CompilerConfig.getDefault();
+
+        // every entry has the same size
+        var sizing = temp.newFolder();
+        new CompilationCache(sizing).put("class A {}", config, compiled("A"));
+        long entryBytes = getEntry(sizing).length();
+
+        var folder = temp.newFolder();
+        var cache = new CompilationCache(folder, 2 * entryBytes + entryBytes / 2);
+        long now = System.currentTimeMillis();
+
+        cache.put("class A {}", config, compiled("A"));
+        assertTrue(getEntry(folder).setLastModified(now - 20_000));
+        cache.put("class B {}", config, compiled("B"));
+        for (var entry : folder.listFiles()) {
+            if (entry.lastModified() > now - 20_000) {
+                assertTrue(entry.setLastModified(now - 10_000));
+            }
+        }
+
+        // A is now the most recently used, and there is no room for C
+        assertTrue(cache.get("class A {}", config).isPresent());
+        cache.put("class C {}", config, compiled("C"));
+
+        assertEquals(2, folder.listFiles().length);
+        assertTrue(cache.get("class A {}", config).isPresent());
+        assertFalse(cache.get("class B {}", config).isPresent());
+        assertTrue(cache.get("class C {}", config).isPresent());
+    }
+
+    @Test
+    public void truncatedOrCorruptEntriesAreMisses() throws IOException {
+        var folder = temp.newFolder();
+        var cache = new CompilationCache(folder);
+        Map<String, String> config = CompilerConfig.getDefault();
+
+        cache.put("class A {}", config, compiled("A"));
+        var entry = getEntry(folder);
+        var bytes = Files.readAllBytes(entry.toPath());
+
+        Files.write(entry.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        assertFalse(cache.get("class A {}", config).isPresent());
+
+        // class name 'A', then a negative length for the Jasmin code
+        Files.write(entry.toPath(), new byte[]{0, 1, 'A', -1, -1, -1, -1});
+        assertFalse(cache.get("class A {}", config).isPresent());
+
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // a new entry replaces the bad one
+        cache.put("class A {}", config, compiled("A"));
+        assertTrue(cache.get("class A {}", config).isPresent());
+    }
+
+    @Test
+    public void disabledWithOption() throws IOException {
+        var input = temp.newFile("A.jmm");
+        SpecsIo.write(input, "class A {}");
+
+        var disabled = CompilerConfig.parseArgs(new String[]{"-i=" + input, "-c=false"});
+        assertFalse(CompilationCache.fromConfig(disabled).isPresent());
+
+        var folder = new File(temp.getRoot(), "cache");
+        var enabled = CompilerConfig.parseArgs(new String[]{"-i=" + input, "-c=" + folder});
+        var cache = CompilationCache.fromConfig(enabled).orElseThrow();
+        cache.put("class A {}", enabled, compiled("A"));
+        assertTrue(getEntry(folder).isFile());
+    }
+}
@@ -0,0 +1,159 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilationResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerService;
+import pt.up.fe.comp2024.JmmCompiler;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CompilerServiceTest {
+
+    private static final String CODE = "class A { public int foo(int a) { return a + 1; } }";
+
+    /**
+     * Waits until released before compiling, and crashes on the source 'crash'.
+     */
+    private static class BlockingCompiler extends JmmCompiler {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        private BlockingCompiler(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public CompilationResult compile(String code, Map<String, String> config) {
+            started.countDown();
+            try {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+
+            if (code.equals("crash")) {
+                throw new StackOverflowError("crash");
+            }
+            return super.compile(code, config);
+        }
+    }
+
+    private static Throwable getFailure(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("expected the job to fail");
+    }
+
+    private static void assertIdle(CompilerService.Metrics metrics) {
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(0, metrics.getRunning());
+    }
+
+    @Test
+    public void rejectsWhenRunningAndQueuedAreFull() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var service = new CompilerService(1, 1, () -> new BlockingCompiler(started, release))) {
+            Map<String, String> config = CompilerConfig.getDefault();
+            var running = service.submit(CODE, config);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            var queued = service.submit(CODE, config);
+
+            var rejected = service.submit(CODE, config);
+            assertTrue(rejected.isCompletedExceptionally());
+            assertTrue(getFailure(rejected) instanceof RejectedExecutionException);
+
+            var metrics = service.getMetrics();
+            assertEquals(1, metrics.getRunning());
+            assertEquals(1, metrics.getQueueDepth());
+            assertEquals(1, metrics.getRejected());
+
+            release.countDown();
+            assertTrue(running.join().isSuccess());
+            assertTrue(queued.join().isSuccess());
+
+            assertEquals(2, metrics.getCompleted());
+            assertEquals(1, metrics.getRejected());
+            assertIdle(metrics);
+        }
+    }
+
+    @Test
+    public void submitBlockingWaitsForRoom() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var service = new CompilerService(1, 0, () -> new BlockingCompiler(started, release))) {
+            Map<String, String> config = CompilerConfig.getDefault();
+            var running = service.submit(CODE, config);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            var blocked = new AtomicReference<CompletableFuture<CompilationResult>>();
+            var submitter = new Thread(() -> {
+                try {
+                    blocked.set(service.submitBlocking(CODE, config));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            submitter.start();
+
+            // waits for a permit
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (submitter.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(Thread.State.WAITING, submitter.getState());
+            assertNull(blocked.get());
+
+            release.countDown();
+            submitter.join(10_000);
+            assertTrue(running.join().isSuccess());
+            assertTrue(blocked.get().join().isSuccess());
+
+            var metrics = service.getMetrics();
+            assertEquals(2, metrics.getCompleted());
+            assertEquals(0, metrics.getRejected());
+            assertIdle(metrics);
+        }
+    }
+
+    @Test
+    public void crashReleasesPermitAndCompiler() throws Exception {
+        var release = new CountDownLatch(0);
+        var compilers = new AtomicInteger();
+        try (var service = new CompilerService(1, 0, () -> {
+            compilers.incrementAndGet();
+            return new BlockingCompiler(new CountDownLatch(1), release);
+        })) {
+            Map<String, String> config = CompilerConfig.getDefault();
+
+            var crashed = service.submit("crash", config);
+            assertTrue(getFailure(crashed) instanceof StackOverflowError);
+
+            // the permit was released, and the worker has a new compiler
+            var next = service.submit(CODE, config);
+            assertTrue(next.join().isSuccess());
+            assertEquals(2, compilers.get());
+
+            var metrics = service.getMetrics();
+            assertEquals(2, metrics.getCompleted());
+            assertEquals(0, metrics.getRejected());
+            assertIdle(metrics);
+        }
+    }
+}
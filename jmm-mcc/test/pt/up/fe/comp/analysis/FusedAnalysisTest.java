@@ -0,0 +1,127 @@
+package pt.up.fe.comp.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
+import pt.up.fe.comp2024.analysis.AnalysisVisitor;
+import pt.up.fe.comp2024.analysis.FusedAnalysis;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.Profiler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class FusedAnalysisTest {
+
+    static final List<Supplier<AnalysisPass>> PASSES = List.of(UndeclaredVariable::new,
+            UndeclaredMethod::new, InvalidBinaryOperation::new, InvalidArrayAccess::new, InvalidArrayIndex::new,
+            ExpressionCondition::new, StaticMethods::new, InvalidAssign::new, InvalidThis::new,
+            InvalidParameters::new, MethodCallParameters::new, IncompatibleReturn::new, RepeatedNames::new);
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, Collections.emptyMap()).getRootNode();
+    }
+
+    private static String toString(List<Report> reports) {
+        return reports.stream().map(report -> report.getLine() + ":" + report.getColumn() + " " + report.getMessage())
+                .toList().toString();
+    }
+
+    /**
+     * Fails in the visit of the second node of a kind.
+     */
+    private static class FailingPass extends AnalysisVisitor {
+
+        private int visits;
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.VAR_REF_EXPR, this::visitVarRef);
+        }
+
+        private Void visitVarRef(JmmNode node, SymbolTable table) {
+            if (++visits == 2) {
+                throw new RuntimeException("second visit");
+            }
+            return null;
+        }
+    }
+
+    @Test
+    public void sameReportsAsSeparatePasses() {
+        var root = parse("import io;\nclass A {\n    int f;\n"
+                + "    public int foo(int a, boolean b) {\n"
+                + "        int c;\n"
+                + "        c = a + b;\n"
+                + "        d = c;\n"
+                + "        if (a) { c = this.bar(); } else { c = b[0]; }\n"
+                + "        return b;\n"
+                + "    }\n"
+                + "    public static void main(String[] args) { f = 1; }\n"
+                + "}\n");
+        var table = JmmSymbolTableBuilder.build(root);
+
+        var passes = PASSES.stream().map(Supplier::get).toList();
+        var fused = new FusedAnalysis(passes);
+        fused.analyze(root, table);
+
+        int withReports = 0;
+        for (int i = 0; i < PASSES.size(); i++) {
+            var separate = PASSES.get(i).get();
+            List<Report> expected;
+            try {
+                expected = separate.analyze(root, table);
+            } catch (Exception e) {
+                assertNotNull(fused.getFailure(i));
+                continue;
+            }
+
+            assertNull(fused.getFailure(i));
+            assertEquals(toString(expected), toString(fused.getReports(i)));
+            if (!expected.isEmpty()) {
+                withReports++;
+            }
+        }
+
+        assertTrue(withReports > 1);
+    }
+
+    @Test
+    public void failureStopsOnlyThatPass() {
+        var root = parse("class A { public int foo(int a) { return a + b + c; } }");
+        var table = JmmSymbolTableBuilder.build(root);
+
+        var fused = new FusedAnalysis(List.of(new FailingPass(), new UndeclaredVariable()));
+        fused.analyze(root, table);
+
+        assertEquals("second visit", fused.getFailure(0).getMessage());
+        assertNull(fused.getFailure(1));
+        assertEquals(2, fused.getReports(1).size());
+    }
+
+    @Test
+    public void profilingMeasuresEachPass() {
+        var parserResult = new JmmParserImpl().parse("class A { public int foo(int a) { return a + b; } }",
+                Collections.emptyMap());
+        var profiler = new Profiler(true);
+        var analysis = new JmmAnalysisImpl();
+        analysis.setProfiler(profiler);
+        analysis.semanticAnalysis(parserResult);
+
+        var passesStage = profiler.getStages().stream().filter(stage -> stage.getName().equals("passes"))
+                .findFirst().orElseThrow();
+        var names = passesStage.getChildren().stream().map(Profiler.Measurement::getName).toList();
+        assertEquals(PASSES.stream().map(pass -> pass.get().getClass().getSimpleName()).toList(), names);
+        // UndeclaredVariable visits the variables
+        assertTrue(passesStage.getChildren().get(0).getWallNanos() > 0);
+    }
+}
@@ -0,0 +1,135 @@
+package pt.up.fe.comp.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
+import pt.up.fe.comp2024.analysis.AnalysisVisitor;
+import pt.up.fe.comp2024.analysis.FusedAnalysis;
+import pt.up.fe.comp2024.analysis.ParallelAnalysis;
+import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class ParallelAnalysisTest {
+
+    static final List<Supplier<AnalysisPass>> PASSES = List.of(UndeclaredVariable::new,
+            UndeclaredMethod::new, InvalidBinaryOperation::new, InvalidArrayAccess::new, InvalidArrayIndex::new,
+            ExpressionCondition::new, StaticMethods::new, InvalidAssign::new, InvalidThis::new,
+            InvalidParameters::new, MethodCallParameters::new, IncompatibleReturn::new, RepeatedNames::new,
+            FailingPass::new);
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, Collections.emptyMap()).getRootNode();
+    }
+
+    static String toString(List<Report> reports) {
+        return reports.stream().map(report -> report.getLine() + ":" + report.getColumn() + " " + report.getMessage())
+                .toList().toString();
+    }
+
+    /**
+     * Reports each variable, and fails in the visit of a variable named 'boom'.
+     */
+    private static class FailingPass extends AnalysisVisitor {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.VAR_REF_EXPR, this::visitVarRef);
+        }
+
+        private Void visitVarRef(JmmNode node, SymbolTable table) {
+            if (node.get("name").equals("boom")) {
+                throw new RuntimeException("boom");
+            }
+
+            addReport(Report.newWarn(Stage.SEMANTIC, NodeUtils.getLine(node), NodeUtils.getColumn(node),
+                    getCurrentMethod() + "." + node.get("name"), null));
+            return null;
+        }
+    }
+
+    /**
+     * A class with errors spread over its methods, and a variable that stops {@link FailingPass} in the middle.
+     */
+    static String largeClass(int methods) {
+        var code = new StringBuilder("import io;\nclass Large {\n    int field;\n    int field;\n");
+        for (int i = 0; i < methods; i++) {
+            code.append("    public int method").append(i).append("(int a, int[] b) {\n")
+                    .append("        int c;\n")
+                    .append("        c = a + b[0] * 2 - this.method0(a, b) / 3;\n");
+            if (i % 7 == 3) {
+                code.append("        c = d + 1;\n");
+            }
+            if (i % 11 == 5) {
+                code.append("        c = a + true;\n");
+            }
+            if (i == methods / 2) {
+                code.append("        c = boom;\n");
+            }
+            code.append("        return c;\n")
+                    .append("    }\n");
+        }
+        code.append("    public static void main(String[] args) { field = 1; }\n}\n");
+
+        return code.toString();
+    }
+
+    @Test
+    public void sameResultsAsFusedAnalysis() {
+        var root = parse(largeClass(100));
+        var table = JmmSymbolTableBuilder.build(root);
+
+        var fused = new FusedAnalysis(PASSES.stream().map(Supplier::get).toList());
+        fused.analyze(root, table);
+
+        int withReports = 0;
+        for (int threads : new int[]{1, 2, 4}) {
+            var pool = new ForkJoinPool(threads);
+            try {
+                var parallel = new ParallelAnalysis(PASSES, pool);
+                parallel.analyze(root, table);
+
+                for (int i = 0; i < PASSES.size(); i++) {
+                    assertEquals(fused.getFailure(i) == null, parallel.getFailure(i) == null);
+                    assertEquals(toString(fused.getReports(i)), toString(parallel.getReports(i)));
+                    if (!parallel.getReports(i).isEmpty()) {
+                        withReports++;
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        assertTrue(withReports > 3);
+    }
+
+    @Test
+    public void failureDiscardsLaterMethods() {
+        var root = parse(largeClass(100));
+        var table = JmmSymbolTableBuilder.build(root);
+
+        var parallel = new ParallelAnalysis(List.of(FailingPass::new, UndeclaredVariable::new));
+        parallel.analyze(root, table);
+
+        assertEquals("boom", parallel.getFailure(0).getMessage());
+        var reports = toString(parallel.getReports(0));
+        assertTrue(reports.contains("method49.a"));
+        assertFalse(reports.contains("method51.a"));
+
+        assertNull(parallel.getFailure(1));
+        assertEquals(15, parallel.getReports(1).size());
+    }
+}
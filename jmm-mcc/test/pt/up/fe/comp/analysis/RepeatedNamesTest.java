@@ -0,0 +1,87 @@
+package pt.up.fe.comp.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.passes.RepeatedNames;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RepeatedNamesTest {
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, Collections.emptyMap()).getRootNode();
+    }
+
+    private static List<String> toStrings(List<Report> reports) {
+        return reports.stream().map(report -> report.getLine() + ":" + report.getColumn() + " " + report.getMessage())
+                .toList();
+    }
+
+    private static List<Report> analyze(JmmNode root) {
+        return new RepeatedNames().analyze(root, JmmSymbolTableBuilder.build(root));
+    }
+
+    @Test
+    public void eachRepeatedDeclaration() {
+        var root = parse("import io;\nimport io;\nclass A {\n"
+                + "    int f;\n"
+                + "    boolean f;\n"
+                + "    int g;\n"
+                + "    public int foo(int a, int b, int a) {\n"
+                + "        int c;\n"
+                + "        int d;\n"
+                + "        int d;\n"
+                + "        int c;\n"
+                + "        return a;\n"
+                + "    }\n"
+                + "    public int foo(int a) {\n"
+                + "        int c;\n"
+                + "        return a;\n"
+                + "    }\n"
+                + "}\n");
+
+        assertEquals(List.of("2:0 Import '[io]' declared more than 1 time",
+                        "5:4 Variable 'f' declared more than 1 time",
+                        "14:4 Method 'foo' declared more than 1 time",
+                        "7:33 Parameter 'a' declared more than 1 time",
+                        "10:8 Local Variable 'd' declared more than 1 time",
+                        "11:8 Local Variable 'c' declared more than 1 time"),
+                toStrings(analyze(root)));
+    }
+
+    @Test
+    public void thriceReportedTwice() {
+        var root = parse("class A {\n    int f;\n    int f;\n    int f;\n}\n");
+
+        assertEquals(List.of("3:4 Variable 'f' declared more than 1 time", "4:4 Variable 'f' declared more than 1 time"),
+                toStrings(analyze(root)));
+    }
+
+    @Test
+    public void manyFields() {
+        int numFields = 50_000;
+        var code = new StringBuilder("class Large {\n");
+        for (int i = 0; i < numFields; i++) {
+            code.append("    int field").append(i % 1_000 == 999 ? i - 1 : i).append(";\n");
+        }
+        code.append("}\n");
+        var root = parse(code.toString());
+        var table = JmmSymbolTableBuilder.build(root);
+
+        long start = System.nanoTime();
+        var reports = new RepeatedNames().analyze(root, table);
+        long time = System.nanoTime() - start;
+
+        assertEquals(numFields / 1_000, reports.size());
+        assertEquals("1001:4 Variable 'field998' declared more than 1 time", toStrings(reports).get(0));
+
+        // comparing every pair of fields would take seconds
+        assertTrue("took " + time / 1_000_000 + " ms", time < 1_000_000_000L);
+    }
+}
@@ -0,0 +1,120 @@
+package pt.up.fe.comp.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.analysis.TypeAnnotation;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.parser.JmmIncrementalParser;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.TextEdit;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TypeAnnotationTest {
+
+    private static final String CODE = "import io;\nclass A {\n    boolean f;\n"
+            + "    public int foo(int a, int[] b) {\n"
+            + "        A c;\n"
+            + "        c = new A();\n"
+            + "        a = b[0] + b.length * this.foo(a, [1, 2]);\n"
+            + "        f = a < 2 && !f;\n"
+            + "        b = new int[a];\n"
+            + "        io.println(a);\n"
+            + "        return a;\n"
+            + "    }\n"
+            + "}\n";
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, Collections.emptyMap()).getRootNode();
+    }
+
+    private static String types(JmmNode root) {
+        var types = new StringBuilder();
+        for (var kind : List.of(Kind.BINARY_EXPR, Kind.VAR_REF_EXPR, Kind.METHOD_CALL, Kind.NEW_OBJECT,
+                Kind.NEW_ARRAY, Kind.ARRAY_CALL, Kind.ARRAY_ACCESS, Kind.LENGTH, Kind.CONST)) {
+            for (var node : NodeUtils.getDescendants(root, kind)) {
+                var type = TypeUtils.getAnnotatedType(node);
+                types.append(node.getKind()).append(node.getOptional("name").map(name -> " " + name).orElse(""))
+                        .append(": ").append(type == null ? "null" : type.print()).append('\n');
+            }
+        }
+
+        return types.toString();
+    }
+
+    private static JmmNode annotated() {
+        var root = parse(CODE);
+        TypeAnnotation.annotate(root, JmmSymbolTableBuilder.build(root));
+        return root;
+    }
+
+    @Test
+    public void everyExpression() {
+        var types = types(annotated());
+        assertTrue(types, types.contains("NewObject: A\n"));
+        assertTrue(types, types.contains("BinaryExpr +: int\n"));
+        assertTrue(types, types.contains("BinaryExpr &&: boolean\n"));
+        assertTrue(types, types.contains("VarRefExpr b: int[]\n"));
+        assertTrue(types, types.contains("VarRefExpr f: boolean\n"));
+        assertTrue(types, types.contains("MethodCall foo: int\n"));
+        assertTrue(types, types.contains("ArrayCall: int[]\n"));
+        assertTrue(types, types.contains("ArrayAccess: int\n"));
+        assertTrue(types, types.contains("Length: int\n"));
+        assertTrue(types, types.contains("NewArray: int[]\n"));
+        // not a variable, and a method of another class
+        assertTrue(types, types.contains("VarRefExpr io: \n"));
+        assertTrue(types, types.contains("MethodCall println: \n"));
+        assertFalse(types, types.contains("null"));
+    }
+
+    @Test
+    public void sharedWithOllir() {
+        var parserResult = new JmmParserImpl().parse(CODE, Collections.emptyMap());
+        var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+        var table = semanticsResult.getSymbolTable();
+
+        // annotated during the traversal of the passes
+        assertEquals(types(annotated()), types(semanticsResult.getRootNode()));
+
+        for (var node : NodeUtils.getDescendants(semanticsResult.getRootNode(), Kind.BINARY_EXPR)) {
+            assertSame(TypeUtils.getAnnotatedType(node), TypeUtils.getExprType(node, table));
+        }
+
+        // canonical types, same instances as in the table
+        var param = NodeUtils.getDescendants(semanticsResult.getRootNode(), Kind.VAR_REF_EXPR).stream()
+                .filter(node -> node.get("name").equals("b"))
+                .findFirst().orElseThrow();
+        assertSame(table.getParameters("foo").get(1).getType(), TypeUtils.getExprType(param, table));
+    }
+
+    @Test
+    public void annotatedAgainAfterIncrementalParse() {
+        var code = "class A {\n    boolean b;\n"
+                + "    public int foo() {\n"
+                + "        if (b) { b = false; } else { b = true; }\n"
+                + "        return 1;\n"
+                + "    }\n"
+                + "}\n";
+        var parserResult = new JmmParserImpl().parse(code, Collections.emptyMap());
+        var analysis = new JmmAnalysisImpl();
+        assertTrue(analysis.semanticAnalysis(parserResult).getReports().isEmpty());
+
+        // only the field is parsed again, the expressions of the method keep their nodes
+        int offset = code.indexOf("boolean b;");
+        var edit = new TextEdit(offset, offset + "boolean".length(), "int");
+        var reparsed = new JmmIncrementalParser(new JmmParserImpl()).reparse(parserResult, code, edit,
+                Collections.emptyMap());
+        var expected = new JmmParserImpl().parse(edit.apply(code), Collections.emptyMap());
+
+        assertEquals(analysis.semanticAnalysis(expected).getReports().toString(),
+                analysis.semanticAnalysis(reparsed).getReports().toString());
+        assertFalse(analysis.semanticAnalysis(reparsed).getReports().isEmpty());
+    }
+}
@@ -0,0 +1,127 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AKindVisitorTest {
+
+    /**
+     * Records the visits, with a visit for a kind, one for a super kind and a default one.
+     */
+    private static class KindRecorder extends PreorderKindVisitor<List<String>, Void> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_DECL, (node, visits) -> record(visits, "method"));
+            addVisit("Expr", (node, visits) -> record(visits, "expr"));
+            addVisit(Kind.BINARY_EXPR, (node, visits) -> record(visits, "binary"));
+            setDefaultVisit((node, visits) -> record(visits, "default"));
+        }
+
+        private static Void record(List<String> visits, String visit) {
+            visits.add(visit);
+            return null;
+        }
+    }
+
+    private static class LibraryRecorder extends PreorderJmmVisitor<List<String>, Void> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_DECL, (node, visits) -> KindRecorder.record(visits, "method"));
+            addVisit("Expr", (node, visits) -> KindRecorder.record(visits, "expr"));
+            addVisit(Kind.BINARY_EXPR, (node, visits) -> KindRecorder.record(visits, "binary"));
+            setDefaultVisit((node, visits) -> KindRecorder.record(visits, "default"));
+        }
+    }
+
+    /**
+     * Records the kinds visited, and adds a child to each method when visiting it.
+     */
+    private static class AddingRecorder extends PreorderKindVisitor<List<String>, Void> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_DECL, AddingRecorder::addChild);
+            setDefaultVisit((node, visits) -> KindRecorder.record(visits, node.getKind()));
+        }
+
+        private static Void addChild(JmmNode node, List<String> visits) {
+            node.add(new JmmNodeImpl("Added"));
+            return KindRecorder.record(visits, node.getKind());
+        }
+    }
+
+    private static class LibraryAddingRecorder extends PreorderJmmVisitor<List<String>, Void> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_DECL, AddingRecorder::addChild);
+            setDefaultVisit((node, visits) -> KindRecorder.record(visits, node.getKind()));
+        }
+    }
+
+    private static JmmNode newClass() {
+        var classDecl = new JmmNodeImpl("ClassDecl");
+        var method = new JmmNodeImpl("MethodDecl");
+        method.add(new JmmNodeImpl("Unknown"));
+        classDecl.add(method);
+        return classDecl;
+    }
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, Collections.emptyMap()).getRootNode();
+    }
+
+    @Test
+    public void sameVisitsAsLibrary() {
+        var root = parse("class A { int f; public int m(int a) { return a + this.m(1) * 2; } }");
+
+        var expected = new ArrayList<String>();
+        new LibraryRecorder().visit(root, expected);
+        var actual = new ArrayList<String>();
+        new KindRecorder().visit(root, actual);
+
+        assertEquals(expected, actual);
+        assertEquals(List.of("default", "default", "default", "default", "method", "default", "default", "default",
+                "default", "binary", "expr", "binary", "expr", "expr", "expr"), actual);
+    }
+
+    @Test
+    public void nodesNotCreatedByTheParsers() {
+        var method = new JmmNodeImpl("MethodDecl");
+        var unknown = new JmmNodeImpl("Unknown");
+        method.add(unknown);
+        method.add(new CompactJmmNode(Kind.BINARY_EXPR));
+
+        var visits = new ArrayList<String>();
+        new KindRecorder().visit(method, visits);
+
+        // a compact node created outside the parser has no super kind
+        assertEquals(List.of("method", "default", "binary"), visits);
+    }
+
+    @Test
+    public void childrenAddedByPreorderVisit() {
+        var expected = new ArrayList<String>();
+        new LibraryAddingRecorder().visit(newClass(), expected);
+        var actual = new ArrayList<String>();
+        new AddingRecorder().visit(newClass(), actual);
+
+        // the children of a node are read after visiting it
+        assertEquals(expected, actual);
+        assertEquals(List.of("ClassDecl", "MethodDecl", "Unknown", "Added"), actual);
+    }
+}
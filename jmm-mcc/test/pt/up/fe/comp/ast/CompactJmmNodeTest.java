@@ -0,0 +1,85 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.ast.CompactJmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CompactJmmNodeTest {
+
+    @Test
+    public void typedAttributes() {
+        var node = new CompactJmmNode(Kind.METHOD_DECL);
+        node.put("lineStart", "3");
+        node.putObject("isStatic", true);
+        node.put("name", "foo");
+
+        assertEquals("MethodDecl", node.getKind());
+        assertEquals(Kind.METHOD_DECL, Kind.of(node));
+        assertTrue(Kind.METHOD_DECL.check(node));
+
+        // same types as in a JmmNodeImpl
+        assertEquals("3", node.getObject("lineStart"));
+        assertEquals(Boolean.TRUE, node.getObject("isStatic"));
+        assertEquals("foo", node.get("name"));
+        assertEquals(Set.of("lineStart", "isStatic", "name"), node.getAttributes());
+
+        // same order as in a JmmNodeImpl
+        var library = new JmmNodeImpl("MethodDecl");
+        library.put("lineStart", "3");
+        library.putObject("isStatic", true);
+        library.put("name", "foo");
+        assertEquals(List.copyOf(library.getAttributes()), List.copyOf(node.getAttributes()));
+
+        assertEquals(3, NodeUtils.getLine(node));
+        assertEquals(-1, NodeUtils.getColumn(node));
+        assertTrue(NodeUtils.getBooleanAttribute(node, "isStatic", "false"));
+        assertFalse(NodeUtils.getBooleanAttribute(node, "isPublic", "false"));
+        assertFalse(node.hasAttribute("isPublic"));
+    }
+
+    @Test
+    public void otherValuesKeptAsTheyAre() {
+        var node = new CompactJmmNode(Kind.TYPE);
+        node.putObject("isArray", false);
+        assertEquals(Boolean.FALSE, node.getObject("isArray"));
+
+        // a String flag replaces the bit
+        assertEquals(Boolean.FALSE, node.putObject("isArray", "true"));
+        assertEquals("true", node.getObject("isArray"));
+        assertTrue(NodeUtils.getBooleanAttribute(node, "isArray", "false"));
+
+        node.put("lineStart", "unknown");
+        assertEquals("unknown", node.get("lineStart"));
+
+        node.put("superClass", "Foo");
+        assertEquals(Set.of("isArray", "lineStart", "superClass"), node.getAttributes());
+    }
+
+    @Test
+    public void copyKeepsTypes() {
+        var node = new CompactJmmNode(Kind.PARAM);
+        node.setHierarchy(List.of("Param"));
+        node.setPosition(NodePosition.COL_END, 7);
+        node.putObject("isVarArg", true);
+        node.putObject("lib", List.of("a", "b"));
+        node.add(new CompactJmmNode(Kind.TYPE));
+
+        var copy = node.copy();
+
+        assertTrue(copy instanceof CompactJmmNode);
+        assertEquals(node.getAttributes(), copy.getAttributes());
+        assertEquals(Boolean.TRUE, copy.getObject("isVarArg"));
+        assertEquals("7", copy.get("colEnd"));
+        assertEquals(List.of("a", "b"), copy.getObject("lib"));
+        assertEquals(Kind.TYPE, Kind.of(copy.getJmmChild(0)));
+        assertEquals(0, copy.getJmmChild(0).getIndexOfSelf());
+    }
+}
@@ -0,0 +1,109 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * The analysis and the OLLIR generation visit the AST without recursion, these tests run them on trees much deeper than
+ * the Java stack of the thread would allow with one call per level.
+ */
+public class DeepTreeTest {
+
+    // much less than the default, a recursive visit overflows after a few thousand levels
+    private static final long STACK_SIZE = 512 * 1024;
+
+    private static final long PARSER_STACK_SIZE = 64 * 1024 * 1024;
+
+    @Test
+    public void longExpression() {
+        int terms = 100_000;
+
+        var code = new StringBuilder("class Deep {\n")
+                .append("    public static void main(String[] args) {\n")
+                .append("        int a;\n")
+                .append("        int b;\n")
+                .append("        a = 1;\n")
+                .append("        b = a");
+        for (int i = 1; i < terms; i++) {
+            code.append(i % 2 == 0 ? " + a" : " * 2");
+        }
+        code.append(";\n    }\n}\n");
+
+        var ollir = toOllir(code.toString());
+
+        // one temporary for each operation
+        assertEquals(terms - 1, ollir.getOllirCode().split("\\.i32 [+*]\\.i32 ", -1).length - 1);
+    }
+
+    @Test
+    public void nestedStatements() {
+        int depth = 1_000;
+
+        var code = new StringBuilder("class Nest {\n")
+                .append("    public int foo(int a) {\n");
+        for (int i = 0; i < depth; i++) {
+            code.append(i % 2 == 0 ? "if (a < 10) {" : "while (a < 10) {");
+        }
+        code.append("a = a + 1;");
+        for (int i = 0; i < depth; i++) {
+            code.append((depth - 1 - i) % 2 == 0 ? "} else { a = 0; }" : "}");
+        }
+        code.append("\n        return a;\n    }\n}\n");
+
+        var ollir = toOllir(code.toString());
+
+        assertTrue(ollir.getOllirCode().contains("ret.i32 a.i32;"));
+    }
+
+    /**
+     * Parses the code and then analyses it and generates its OLLIR in a thread with a small stack.
+     */
+    private static OllirResult toOllir(String code) {
+        // the parser is still recursive, nested statements need a larger stack
+        var parserResult = runWithStack(PARSER_STACK_SIZE, () -> new JmmParserImpl().parse(code, Collections.emptyMap()));
+        assertFalse(ReportUtils.anyError(parserResult.getReports()));
+
+        return runWithStack(STACK_SIZE, () -> {
+            var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+            assertFalse(ReportUtils.anyError(semanticsResult.getReports()));
+
+            return new JmmOptimizationImpl().toOllir(semanticsResult);
+        });
+    }
+
+    private static <T> T runWithStack(long stackSize, Supplier<T> task) {
+        var result = new AtomicReference<T>();
+        var error = new AtomicReference<Throwable>();
+
+        var thread = new Thread(null, () -> {
+            try {
+                result.set(task.get());
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "deep-tree", stackSize);
+
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (error.get() != null) {
+            throw new AssertionError("Could not compile the code", error.get());
+        }
+
+        return result.get();
+    }
+}
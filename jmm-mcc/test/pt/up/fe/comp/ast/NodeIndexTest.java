@@ -0,0 +1,103 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeIndex;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NodeIndexTest {
+
+    private static final String CODE = "import io;\nclass A {\n    int f;\n"
+            + "    public int foo(int a, int[] b) {\n"
+            + "        int c;\n"
+            + "        c = a + b[0] * this.foo(a, b);\n"
+            + "        if (a < c) { c = 1; } else { c = b.length; }\n"
+            + "        return c;\n"
+            + "    }\n"
+            + "    public static void main(String[] args) { io.println(1); }\n"
+            + "}\n";
+
+    private static JmmNode parse(String code) {
+        return new JmmParserImpl().parse(code, Collections.emptyMap()).getRootNode();
+    }
+
+    private static void preorder(JmmNode node, List<JmmNode> nodes) {
+        nodes.add(node);
+        for (var child : node.getChildren()) {
+            preorder(child, nodes);
+        }
+    }
+
+    private static int countDescendants(JmmNode node) {
+        int count = 0;
+        for (var child : node.getChildren()) {
+            count += 1 + countDescendants(child);
+        }
+
+        return count;
+    }
+
+    @Test
+    public void idsInPreorder() {
+        var root = parse(CODE);
+        var index = NodeIndex.build(root);
+
+        var nodes = new ArrayList<JmmNode>();
+        preorder(root, nodes);
+        assertEquals(nodes.size(), index.size());
+        for (int id = 0; id < nodes.size(); id++) {
+            assertSame(nodes.get(id), index.getNode(id));
+            assertEquals(id + 1 + countDescendants(nodes.get(id)), index.getEnd(id));
+        }
+    }
+
+    @Test
+    public void nodesOfEachKind() {
+        var root = parse(CODE);
+        var index = NodeIndex.build(root);
+
+        for (var kind : Kind.values()) {
+            var expected = new ArrayList<Integer>();
+            for (int id = 0; id < index.size(); id++) {
+                if (kind.check(index.getNode(id))) {
+                    expected.add(id);
+                }
+            }
+
+            var ids = new ArrayList<Integer>();
+            for (int i = 0; i < index.getCount(kind); i++) {
+                ids.add(index.getId(kind, i));
+            }
+            assertEquals(kind.toString(), expected, ids);
+        }
+        assertEquals(2, index.getCount(Kind.METHOD_DECL));
+    }
+
+    @Test
+    public void nodesOfKindInSubtree() {
+        var root = parse(CODE);
+        var index = NodeIndex.build(root);
+
+        // the method calls of each method
+        int foo = index.getId(Kind.METHOD_DECL, 0);
+        int main = index.getId(Kind.METHOD_DECL, 1);
+        int fooCalls = index.lowerBound(Kind.METHOD_CALL, index.getEnd(foo)) - index.lowerBound(Kind.METHOD_CALL, foo);
+        int mainCalls = index.lowerBound(Kind.METHOD_CALL, index.getEnd(main))
+                - index.lowerBound(Kind.METHOD_CALL, main);
+        assertEquals(1, fooCalls);
+        assertEquals(1, mainCalls);
+        assertEquals("println", index.getNode(index.getId(Kind.METHOD_CALL, 1)).get("name"));
+
+        // no nodes of the kind after the id
+        assertEquals(index.getCount(Kind.IF_STMT), index.lowerBound(Kind.IF_STMT, main));
+        assertEquals(0, index.lowerBound(Kind.WHILE_STMT, 0));
+        assertEquals(0, index.getCount(Kind.WHILE_STMT));
+    }
+}
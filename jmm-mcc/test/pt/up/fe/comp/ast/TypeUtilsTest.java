@@ -0,0 +1,54 @@
+package pt.up.fe.comp.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class TypeUtilsTest {
+
+    @Test
+    public void canonicalTypes() {
+        assertSame(TypeUtils.intType(), TypeUtils.getType("int", false));
+        assertSame(TypeUtils.booleanType(), TypeUtils.getType("boolean", false));
+        assertSame(TypeUtils.intArrayType(), TypeUtils.getType("int", true));
+        assertSame(TypeUtils.getType("boolean", true), TypeUtils.getType("boolean", true));
+        assertNotSame(TypeUtils.getType("int", true), TypeUtils.getType("int", false));
+
+        // class types are only canonical within a compilation
+        var classTypes = new HashMap<String, Type>();
+        assertSame(TypeUtils.getType("Foo", true, classTypes), TypeUtils.getType("Foo", true, classTypes));
+        assertNotSame(TypeUtils.getType("Foo", true, classTypes), TypeUtils.getType("Foo", false, classTypes));
+        assertSame(TypeUtils.intType(), TypeUtils.getType("int", false, classTypes));
+        assertEquals(2, classTypes.size());
+        assertNotSame(TypeUtils.getType("Foo", false), TypeUtils.getType("Foo", false));
+
+        // still equal to types created elsewhere
+        assertEquals(new Type("int", true), TypeUtils.intArrayType());
+        assertTrue(TypeUtils.isSameType(new Type("Foo", false), TypeUtils.getType("Foo", false)));
+        assertFalse(TypeUtils.isSameType(TypeUtils.intType(), TypeUtils.intArrayType()));
+    }
+
+    @Test
+    public void symbolTableUsesCanonicalTypes() {
+        var root = new JmmParserImpl().parse("class A { int[] f; public A foo(int a, A b) { boolean c; return b; } }",
+                Collections.emptyMap()).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+
+        assertSame(table.getType("A", false), table.getReturnType("foo"));
+        assertSame(TypeUtils.intType(), table.getParameters("foo").get(0).getType());
+        assertSame(table.getReturnType("foo"), table.getParameters("foo").get(1).getType());
+        assertSame(TypeUtils.booleanType(), table.getLocalVariables("foo").get(0).getType());
+
+        // each compilation has its own class types
+        var other = JmmSymbolTableBuilder.build(root);
+        assertNotSame(table.getReturnType("foo"), other.getReturnType("foo"));
+        assertSame(table.getFields().get(0).getType(), other.getFields().get(0).getType());
+    }
+}
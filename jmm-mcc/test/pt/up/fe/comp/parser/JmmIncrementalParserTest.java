@@ -0,0 +1,107 @@
+package pt.up.fe.comp.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.parser.JmmIncrementalParser;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.TextEdit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that reparsing after an edit gives the same AST as parsing the edited code from scratch.
+ */
+public class JmmIncrementalParserTest {
+
+    private static final String CODE = """
+            import io;
+            class A {
+                int field; boolean flag;
+                int[] values;
+
+                public int foo(int a, int b) {
+                    int c;
+                    int d;
+                    c = a + b;
+                    d = c * 2; return d;
+                }
+                public boolean bar() { io.println(1); return true; } public int baz() {
+                    return this.foo(1, 2);
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private final JmmParserImpl parser = new JmmParserImpl();
+    private final JmmIncrementalParser incrementalParser = new JmmIncrementalParser(new JmmParserImpl());
+
+    /**
+     * @return the kind of the node that was parsed again, or null if the whole program was
+     */
+    private String assertSameAsFullParse(TextEdit edit) {
+        var config = CompilerConfig.getDefault();
+        JmmParserResult previous = parser.parse(CODE, config);
+
+        var result = incrementalParser.reparse(previous, CODE, edit, config);
+        var expected = parser.parse(edit.apply(CODE), config);
+
+        assertEquals(expected.getReports().toString(), result.getReports().toString());
+        if (expected.getRootNode() == null) {
+            assertNull(result.getRootNode());
+        } else {
+            JmmNodeBuilderTest.assertSameTree(expected.getRootNode(), result.getRootNode());
+        }
+
+        var reparsed = incrementalParser.getLastReparsed();
+        return reparsed == null ? null : reparsed.getKind();
+    }
+
+    private static int offsetOf(String text) {
+        int offset = CODE.indexOf(text);
+        assertNotNull(offset >= 0 ? offset : null);
+        return offset;
+    }
+
+    @Test
+    public void editInsideMethod() {
+        assertEquals("MethodDecl", assertSameAsFullParse(TextEdit.insert(offsetOf("c = a + b;"), "c = 1;\n        ")));
+        assertEquals("MethodDecl", assertSameAsFullParse(new TextEdit(offsetOf("a + b"), offsetOf("a + b") + 5, "a")));
+        assertEquals("MethodDecl", assertSameAsFullParse(TextEdit.delete(offsetOf("io.println(1);"),
+                offsetOf("io.println(1);") + "io.println(1);".length())));
+        // the method that ends on the same line as the next one starts
+        assertEquals("MethodDecl", assertSameAsFullParse(TextEdit.insert(offsetOf("return true;"), "io.println(\n2);")));
+    }
+
+    @Test
+    public void editDeclaration() {
+        assertEquals("VarDecl", assertSameAsFullParse(TextEdit.insert(offsetOf("c;"), "longName")));
+        assertEquals("VarDecl", assertSameAsFullParse(new TextEdit(offsetOf("int field"), offsetOf("int field") + 3,
+                "boolean")));
+        assertEquals("VarDecl", assertSameAsFullParse(TextEdit.insert(offsetOf("[] values") + 2, "\n\n")));
+    }
+
+    @Test
+    public void editAtTheEdges() {
+        // after the last token of a method
+        assertEquals("MethodDecl", assertSameAsFullParse(TextEdit.insert(offsetOf("} public int baz") + 1, "\n")));
+        // a local declaration that becomes a statement
+        assertEquals("MethodDecl", assertSameAsFullParse(new TextEdit(offsetOf("int d;"), offsetOf("int d;") + 6,
+                "d = 1;")));
+    }
+
+    @Test
+    public void fallsBackToFullParse() {
+        // splits the method in two
+        assertNull(assertSameAsFullParse(TextEdit.insert(offsetOf("d = c * 2;"), "} public int other() {")));
+        // between two declarations
+        assertNull(assertSameAsFullParse(TextEdit.insert(offsetOf("boolean flag;") - 1, "int x;")));
+        // opens a comment that ends outside of the method
+        assertNull(assertSameAsFullParse(TextEdit.insert(offsetOf("c = a + b;"), "/*")));
+        // syntax error
+        assertNull(assertSameAsFullParse(TextEdit.insert(offsetOf("c = a + b;"), "c = ;")));
+    }
+}
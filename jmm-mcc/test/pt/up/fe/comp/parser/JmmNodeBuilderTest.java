@@ -0,0 +1,65 @@
+package pt.up.fe.comp.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.parser.JmmNodeBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JmmNodeBuilderTest {
+
+    static JavammParser newParser(String code) {
+        var lexer = new JavammLexer(new ANTLRInputStream(code));
+        lexer.removeErrorListeners();
+        var parser = new JavammParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        return parser;
+    }
+
+    static void assertSameTree(JmmNode expected, JmmNode actual) {
+        assertEquals(expected.getKind(), actual.getKind());
+        assertEquals(new ArrayList<>(expected.getHierarchy()), new ArrayList<>(actual.getHierarchy()));
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+        for (var attr : expected.getAttributes()) {
+            // same values, with the same types
+            assertEquals(expected.getKind() + "." + attr, expected.getObject(attr), actual.getObject(attr));
+        }
+
+        assertEquals(expected.getNumChildren(), actual.getNumChildren());
+        for (int i = 0; i < expected.getNumChildren(); i++) {
+            assertSameTree(expected.getJmmChild(i), actual.getJmmChild(i));
+        }
+    }
+
+    @Test
+    public void sameTreeAsLibraryConverter() {
+        int compared = 0;
+        for (var file : SpecsIo.getFilesRecursive(new File("test"), "jmm")) {
+            var parser = newParser(SpecsIo.read(file));
+            ParseTree tree = parser.program();
+            if (parser.getNumberOfSyntaxErrors() > 0) {
+                continue;
+            }
+
+            var expected = AntlrToJmmNodeConverter.convert(tree, parser);
+            var actual = JmmNodeBuilder.convert(tree, parser);
+
+            assertSameTree(expected, actual);
+            assertEquals(file.toString(), expected.toTree(), actual.toTree());
+            compared++;
+        }
+
+        assertTrue("Expected to compare some files", compared > 0);
+    }
+}
@@ -0,0 +1,96 @@
+package pt.up.fe.comp.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.JmmPrattParser;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential test of the hand-written parser against the ANTLR parser.
+ */
+public class JmmPrattParserTest {
+
+    private final JmmParserImpl antlrParser = new JmmParserImpl();
+    private final JmmPrattParser prattParser = new JmmPrattParser(new JmmParserImpl());
+
+    /**
+     * @return true if the hand-written parser handled the code itself
+     */
+    private boolean assertSameResult(String name, String code) {
+        var config = CompilerConfig.getDefault();
+        JmmParserResult expected = antlrParser.parse(code, config);
+        JmmParserResult actual = prattParser.parse(code, config);
+
+        assertEquals(name, expected.getReports().toString(), actual.getReports().toString());
+        if (expected.getRootNode() == null) {
+            assertNull(name, actual.getRootNode());
+        } else {
+            assertNotNull(name, actual.getRootNode());
+            JmmNodeBuilderTest.assertSameTree(expected.getRootNode(), actual.getRootNode());
+            assertEquals(name, expected.getRootNode().toTree(), actual.getRootNode().toTree());
+        }
+
+        return prattParser.getLastPredictionMode() == null;
+    }
+
+    private boolean assertSameResult(String body) {
+        var code = "import a.b;\nclass A extends B {\n  int[] x;\n  public int m(int a, int... b) {\n    "
+                + body + "\n    return 0;\n  }\n}\n";
+        return assertSameResult(body, code);
+    }
+
+    @Test
+    public void sameTreesOverCorpus() {
+        int handled = 0;
+        for (var file : SpecsIo.getFilesRecursive(new File("test"), "jmm")) {
+            if (assertSameResult(file.toString(), SpecsIo.read(file))) {
+                handled++;
+            }
+        }
+
+        assertTrue("Expected the hand-written parser to handle some files", handled > 0);
+    }
+
+    @Test
+    public void expressionPrecedence() {
+        assertTrue(assertSameResult("a = 1 + 2 * 3 - 4 / 5 < 6 && !b;"));
+        assertTrue(assertSameResult("a = !a.length + !b[0] * !c.foo();"));
+        assertTrue(assertSameResult("a = (1 + 2) * a.b(1, c[2]).d().length;"));
+        assertTrue(assertSameResult("a = this.foo(1).bar(this, [1, 2, 3])[0];"));
+        assertTrue(assertSameResult("foo(); this.length; a.b(); [];"));
+    }
+
+    @Test
+    public void objectAndArrayCreation() {
+        assertTrue(assertSameResult("a = new A(); b = new int[5]; c = new int[]; d = new A[](1)[2];"));
+        assertTrue(assertSameResult("a = new int[a.length][0]; b = new boolean[1, 2];"));
+    }
+
+    @Test
+    public void statements() {
+        assertTrue(assertSameResult("int a; A[] b; A main; if (a < 1) { a = 1; } else while (b) {} { }"));
+    }
+
+    @Test
+    public void fallsBackToAntlr() {
+        // ambiguous, resolved by ANTLR
+        assertSameResult("a = new int[][2];");
+
+        // syntax and lexical errors, reported by ANTLR
+        assertFalse(assertSameResult("a = 1 || 2;"));
+        assertFalse(assertSameResult("a = 1 +;"));
+        assertFalse(assertSameResult("a = 1 # 2;"));
+        assertFalse(assertSameResult("a = b.c;"));
+        assertFalse(assertSameResult("public int a;"));
+    }
+}
@@ -0,0 +1,139 @@
+package pt.up.fe.comp.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.MappedCharStream;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Differential test of the memory-mapped input against the String input of ANTLR.
+ */
+public class MappedCharStreamTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final JmmParserImpl parser = new JmmParserImpl();
+
+    private MappedCharStream open(String code) throws IOException {
+        var file = temp.newFile();
+        Files.write(file.toPath(), code.getBytes(StandardCharsets.UTF_8));
+        return MappedCharStream.open(file).orElseThrow();
+    }
+
+    private static void assertSameLookAhead(CharStream expected, CharStream actual) {
+        assertEquals(expected.index(), actual.index());
+        for (int i = -3; i <= 3; i++) {
+            assertEquals("LA(" + i + ") at " + expected.index(), expected.LA(i), actual.LA(i));
+        }
+    }
+
+    @Test
+    public void sameResultsOverCorpus() {
+        int mapped = 0;
+        for (var file : SpecsIo.getFilesRecursive(new File("test"), "jmm")) {
+            var code = SpecsIo.read(file);
+            var stream = MappedCharStream.open(file);
+
+            boolean ascii = code.chars().allMatch(c -> c < 0x80);
+            assertEquals(file.toString(), ascii, stream.isPresent());
+            if (!ascii) {
+                continue;
+            }
+
+            var config = CompilerConfig.getDefault();
+            JmmParserResult expected = parser.parse(code, config);
+            JmmParserResult actual = parser.parse(stream.get(), config);
+
+            assertEquals(file.toString(), expected.getReports().toString(), actual.getReports().toString());
+            if (expected.getRootNode() == null) {
+                assertNull(file.toString(), actual.getRootNode());
+            } else {
+                assertEquals(file.toString(), expected.getRootNode().toTree(), actual.getRootNode().toTree());
+            }
+            mapped++;
+        }
+
+        assertTrue("Expected to map some files", mapped > 0);
+    }
+
+    @Test
+    public void lookAheadAndSeek() throws IOException {
+        var code = "class A {}";
+        var expected = new ANTLRInputStream(code);
+        var actual = open(code);
+        assertEquals(expected.size(), actual.size());
+
+        // nothing consumed yet, LA(-1) is EOF
+        assertSameLookAhead(expected, actual);
+        while (expected.LA(1) != IntStream.EOF) {
+            expected.consume();
+            actual.consume();
+            assertSameLookAhead(expected, actual);
+        }
+
+        for (int index : new int[]{3, 0, code.length(), code.length() + 5, 1}) {
+            expected.seek(index);
+            actual.seek(index);
+            assertSameLookAhead(expected, actual);
+        }
+
+        actual.seek(code.length());
+        assertThrows(IllegalStateException.class, actual::consume);
+    }
+
+    @Test
+    public void textAtEndOfFile() throws IOException {
+        var code = "class A {}";
+        var expected = new ANTLRInputStream(code);
+        var actual = open(code);
+
+        int size = code.length();
+        for (var interval : new Interval[]{Interval.of(0, size - 1), Interval.of(6, size - 1), Interval.of(6, size + 3),
+                Interval.of(size - 1, size), Interval.of(size, size + 1), Interval.of(size + 2, size + 5),
+                Interval.of(3, 2)}) {
+            assertEquals(interval.toString(), expected.getText(interval), actual.getText(interval));
+        }
+        assertEquals(code, actual.toString());
+
+        var empty = open("");
+        assertEquals(0, empty.size());
+        assertEquals(IntStream.EOF, empty.LA(1));
+        assertEquals(IntStream.EOF, empty.LA(-1));
+        assertEquals("", empty.getText(Interval.of(0, 0)));
+        assertEquals("", empty.toString());
+    }
+
+    @Test
+    public void nonAsciiIsNotMapped() throws IOException {
+        var file = temp.newFile();
+        Files.write(file.toPath(), "// Programa de exemplo, vers\u00e3o 2\nclass A {}\n".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(MappedCharStream.open(file).isPresent());
+    }
+
+    private static void assertThrows(Class<? extends Throwable> expected, Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Throwable e) {
+            assertTrue(e.toString(), expected.isInstance(e));
+            return;
+        }
+        fail("Expected " + expected.getSimpleName());
+    }
+}
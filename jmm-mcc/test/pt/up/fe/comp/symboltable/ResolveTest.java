@@ -0,0 +1,43 @@
+package pt.up.fe.comp.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol.Origin;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ResolveTest {
+
+    private static JmmSymbolTable build(String code) {
+        return JmmSymbolTableBuilder.build(new JmmParserImpl().parse(code, Collections.emptyMap()).getRootNode());
+    }
+
+    @Test
+    public void parametersHideLocalsAndLocalsHideFields() {
+        var table = build("class A { int a; boolean b; int[] c;"
+                + " public int foo(boolean a, int d) { int b; boolean e; return d; }"
+                + " public int bar() { return a; } }");
+
+        var a = table.resolve("foo", "a").orElseThrow();
+        assertEquals(Origin.PARAM, a.getOrigin());
+        assertEquals(new Type("boolean", false), a.getType());
+
+        assertEquals(Origin.LOCAL, table.resolve("foo", "b").orElseThrow().getOrigin());
+        assertEquals(Origin.LOCAL, table.resolve("foo", "e").orElseThrow().getOrigin());
+        assertEquals(Origin.FIELD, table.resolve("foo", "c").orElseThrow().getOrigin());
+        assertTrue(table.resolve("foo", "f").isEmpty());
+
+        // the variables of a method are not visible in the others
+        assertEquals(Origin.FIELD, table.resolve("bar", "a").orElseThrow().getOrigin());
+        assertTrue(table.resolve("bar", "d").isEmpty());
+
+        // outside the methods only the fields are visible
+        assertTrue(table.resolve(null, "c").orElseThrow().isField());
+        assertTrue(table.resolve("unknown", "d").isEmpty());
+    }
+}
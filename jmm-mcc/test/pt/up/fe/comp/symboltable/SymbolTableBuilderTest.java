@@ -0,0 +1,56 @@
+package pt.up.fe.comp.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SymbolTableBuilderTest {
+
+    static String largeClass(int members) {
+        var code = new StringBuilder("import io;\nimport foo.Bar;\nclass Large extends Bar {\n");
+        for (int i = 0; i < members; i++) {
+            code.append("    int field").append(i).append(";\n")
+                    .append("    int[] array").append(i).append(";\n");
+        }
+        for (int i = 0; i < members; i++) {
+            code.append("    public int method").append(i).append("(int a, boolean[] b) {\n")
+                    .append("        int c;\n")
+                    .append("        boolean d;\n")
+                    .append("        c = a;\n")
+                    .append("        return c;\n")
+                    .append("    }\n");
+        }
+        code.append("    public static void main(String[] args) {\n    }\n}\n");
+
+        return code.toString();
+    }
+
+    @Test
+    public void everyMember() {
+        var root = new JmmParserImpl().parse(largeClass(3), Collections.emptyMap()).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+
+        assertEquals(List.of("[io]", "[foo, Bar]"), table.getImports());
+        assertEquals("Large", table.getClassName());
+        assertEquals("Bar", table.getSuper());
+        assertEquals(6, table.getFields().size());
+        assertEquals(List.of("method0", "method1", "method2", "main"), table.getMethods());
+
+        assertEquals(new Type("int", false), table.getReturnType("method1"));
+        assertEquals(List.of(new Symbol(new Type("int", false), "a"), new Symbol(new Type("boolean", true), "b")),
+                table.getParameters("method1"));
+        assertEquals(List.of(new Symbol(new Type("int", false), "c"), new Symbol(new Type("boolean", false), "d")),
+                table.getLocalVariables("method1"));
+
+        assertEquals(new Type("void", false), table.getReturnType("main"));
+        assertEquals(List.of(new Symbol(new Type("String", true), "args")), table.getParameters("main"));
+        assertEquals(List.of(), table.getLocalVariables("main"));
+    }
+}